@@ -13,12 +13,14 @@ public class Settings {
     public final static int REVISION = 2;
     public final static String SUB_REV = ".11";
 
-    private static Settings instance = null;
+    // Created when the class is initialized, which the JVM makes thread-safe
+    private static final Settings instance = new Settings();
 
     private boolean isRCNotation = false;
     private boolean isAntialiasing = true;
     private boolean isShowingCandidates = true;
     private String lookAndFeelClassName = null;
+    private int undoLimit = 100000;
 
     private EnumSet<SolvingTechnique> techniques;
 
@@ -29,8 +31,6 @@ public class Settings {
     }
 
     public static Settings getInstance() {
-        if (instance == null)
-            instance = new Settings();
         return instance;
     }
 
@@ -70,6 +70,20 @@ public class Settings {
         save();
     }
 
+    /**
+     * Get the maximal number of cell changes remembered to undo and redo
+     * the modifications of the grid. Older modifications are forgotten.
+     * @return the maximal number of remembered cell changes
+     */
+    public int getUndoLimit() {
+        return this.undoLimit;
+    }
+
+    public void setUndoLimit(int undoLimit) {
+        this.undoLimit = undoLimit;
+        save();
+    }
+
     public EnumSet<SolvingTechnique> getTechniques() {
         return EnumSet.copyOf(this.techniques);
     }
@@ -123,6 +137,7 @@ public class Settings {
             isAntialiasing = prefs.getBoolean("isAntialiasing", isAntialiasing);
             isShowingCandidates = prefs.getBoolean("isShowingCandidates", isShowingCandidates);
             lookAndFeelClassName = prefs.get("lookAndFeelClassName", lookAndFeelClassName);
+            undoLimit = prefs.getInt("undoLimit", undoLimit);
         } catch (SecurityException ignored) {
             // Maybe we are running from an applet. Do nothing
         }
@@ -136,6 +151,7 @@ public class Settings {
             prefs.putBoolean("isRCNotation", isRCNotation);
             prefs.putBoolean("isAntialiasing", isAntialiasing);
             prefs.putBoolean("isShowingCandidates", isShowingCandidates);
+            prefs.putInt("undoLimit", undoLimit);
             if (lookAndFeelClassName != null)
                 prefs.put("lookAndFeelClassName", lookAndFeelClassName);
             try {
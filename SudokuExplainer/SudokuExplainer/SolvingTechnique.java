@@ -12,9 +12,11 @@ public enum SolvingTechnique {
     NakedPair("Naked Pair"),
     XWing("X-Wing"),
     HiddenPair("Hidden Pair"),
+    FinnedXWing("Finned X-Wing"),
     NakedTriple("Naked Triple"),
     Swordfish("Swordfish"),
     HiddenTriple("Hidden Triple"),
+    FinnedSwordfish("Finned Swordfish"),
     TurbotFish("Turbot Fish"),
     XYWing("XY-Wing"),
     XYZWing("XYZ-Wing"),
@@ -30,13 +32,14 @@ public enum SolvingTechnique {
     NakedQuad("Naked Quadruple"),
     Jellyfish("Jellyfish"),
     HiddenQuad("Hidden Quadruple"),
+    FinnedJellyfish("Finned Jellyfish"),
     BivalueUniversalGrave("Bivalue Universal Grave"),
     AlignedPairExclusion("Aligned Pair Exclusion"),
     ForcingChainCycle("Forcing Chains & Cycles"),
     AlignedTripleExclusion("Aligned Triple Exclusion"),
     NishioForcingChain("Nishio Forcing Chains"),
-    //AlignedQuadrupleExclusion("Aligned Quadruple Exclusion"), // very slow...
-    //AlignedQuintupleExclusion("Aligned Quintuple Exclusion"), // extremely slow...
+    //AlignedQuadrupleExclusion("Aligned Quadruple Exclusion"), // not rated, would change the ratings above 8.3
+    //AlignedQuintupleExclusion("Aligned Quintuple Exclusion"), // not rated, would change the ratings above 9.0
     MultipleForcingChain("Multiple Forcing Chains"),
     DynamicForcingChain("Dynamic Forcing Chains"),
     DynamicForcingChainPlus("Dynamic Forcing Chains (+)"),
@@ -0,0 +1,240 @@
+package SudokuExplainer.generator;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import SudokuExplainer.tools.tuples.Quad;
+import SudokuExplainer.units.Grid;
+
+/**
+ * Headless batch generator.
+ * <p>
+ * Generates a given number of Sudokus within a rating band, using several
+ * worker threads, and writes them to a file, one per line, followed by
+ * their difficulty (ER), pearl difficulty (EP), diamond difficulty (ED)
+ * and index in the run. Throughput statistics are printed on the console.
+ * <p>
+ * The run is reproducible: the Sudoku number <tt>k</tt> only depends on
+ * the seed, on <tt>k</tt> and on the rating band and symmetries (see
+ * {@link Generator#generate(long, long, List, double, double)}).
+ * The Sudokus are written in the order of their index, whatever the
+ * number of threads. If a Sudoku cannot be generated, the run stops
+ * and fails: the Sudokus before it are written, and no other.
+ */
+public class BatchGenerator {
+
+    private static final long REPORT_INTERVAL = 10000L; // ms
+
+    private final List<Symmetry> symmetries;
+    private final double minDifficulty;
+    private final double maxDifficulty;
+    private final int count;
+    private final long seed;
+    private final long firstIndex;
+    private final PrintWriter writer;
+    // Not thread-safe: only used while holding the lock of this generator
+    private final DecimalFormat format = new DecimalFormat("#0.0",
+            DecimalFormatSymbols.getInstance(Locale.US));
+
+    private final AtomicInteger claimed = new AtomicInteger();
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final Map<Integer, String> pendingLines = new HashMap<>();
+    private int nextLine = 0;
+    private Generator[] generators;
+    private volatile String failure = null;
+
+
+    public BatchGenerator(List<Symmetry> symmetries, double minDifficulty,
+            double maxDifficulty, int count, long seed, long firstIndex, PrintWriter writer) {
+        this.symmetries = symmetries;
+        this.minDifficulty = minDifficulty;
+        this.maxDifficulty = maxDifficulty;
+        this.count = count;
+        this.seed = seed;
+        this.firstIndex = firstIndex;
+        this.writer = writer;
+    }
+
+    /**
+     * Generate the Sudokus using the given number of threads.
+     * Returns when all the Sudokus have been written, or when the
+     * generation of a Sudoku failed.
+     * @param nbThreads the number of worker threads
+     * @return whether all the Sudokus were written
+     */
+    public boolean run(int nbThreads) throws InterruptedException {
+        generators = new Generator[nbThreads];
+        Thread[] threads = new Thread[nbThreads];
+        for (int i = 0; i < nbThreads; i++) {
+            final Generator generator = new Generator();
+            generators[i] = generator;
+            threads[i] = new Thread("BatchGenerator-" + i) {
+                @Override
+                public void run() {
+                    work(generator);
+                }
+            };
+            threads[i].setDaemon(true);
+        }
+        long startTime = System.currentTimeMillis();
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                thread.join(REPORT_INTERVAL);
+                if (thread.isAlive())
+                    report(startTime, false);
+            }
+        }
+        synchronized (this) {
+            if (nextLine < count)
+                fail("Sudoku #" + (firstIndex + nextLine) + " was not generated");
+            else if (writer.checkError())
+                fail("The Sudokus could not be written");
+        }
+        report(startTime, true);
+        return failure == null;
+    }
+
+    private void work(Generator generator) {
+        int line = claimed.getAndIncrement();
+        while (line < count && failure == null) {
+            Grid grid;
+            try {
+                grid = generator.generate(seed, firstIndex + line, symmetries,
+                        minDifficulty, maxDifficulty);
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+                fail("Sudoku #" + (firstIndex + line) + " failed: " + ex);
+                return;
+            }
+            if (grid == null) {
+                // Interrupted, because another Sudoku failed
+                fail("Sudoku #" + (firstIndex + line) + " was interrupted");
+                return;
+            }
+            write(line, grid, generator.getLastDifficultyInfo());
+            line = claimed.getAndIncrement();
+        }
+    }
+
+    /**
+     * Stop the run, keeping the first reason of the failure.
+     * The generators of the other workers are interrupted.
+     */
+    private synchronized void fail(String message) {
+        if (failure != null)
+            return;
+        failure = message;
+        for (Generator generator : generators)
+            generator.interrupt();
+    }
+
+    private synchronized void write(int lineIndex, Grid grid,
+            Quad<Double, Double, Double, Integer> info) {
+        StringBuilder line = new StringBuilder(100);
+        for (int y = 0; y < 9; y++) {
+            for (int x = 0; x < 9; x++) {
+                int value = grid.getCellValue(x, y);
+                line.append(value == 0 ? '.' : (char)('0' + value));
+            }
+        }
+        line.append('\t').append(format.format(info.getValue1()));
+        line.append('\t').append(format.format(info.getValue2()));
+        line.append('\t').append(format.format(info.getValue3()));
+        line.append('\t').append(firstIndex + lineIndex);
+        accepted.incrementAndGet();
+        // Keep the order of the indexes
+        pendingLines.put(lineIndex, line.toString());
+        while (pendingLines.containsKey(nextLine))
+            writer.println(pendingLines.remove(nextLine++));
+        writer.flush();
+    }
+
+    private synchronized void report(long startTime, boolean isFinal) {
+        int generated = 0;
+        Map<String, Integer> rejections = new LinkedHashMap<>();
+        for (Generator generator : generators) {
+            generated += generator.getGeneratedCount();
+            for (Map.Entry<String, Integer> entry : generator.getRejections().entrySet())
+                rejections.merge(entry.getKey(), entry.getValue(), Integer::sum);
+        }
+        int done = accepted.get();
+        double minutes = Math.max(System.currentTimeMillis() - startTime, 1L) / 60000.0;
+        StringBuilder message = new StringBuilder();
+        if (!isFinal)
+            message.append("Progress: ");
+        else
+            message.append(failure == null ? "Done: " : "Failed: ");
+        message.append(done).append("/").append(count).append(" puzzles, ");
+        message.append(generated).append(" generated, ");
+        message.append(format.format(done / minutes)).append(" puzzles/min, ");
+        int rejected = generated - done;
+        double rate = (generated == 0 ? 0.0 : rejected * 100.0 / generated);
+        message.append(format.format(rate)).append("% rejected");
+        System.out.println(message);
+        if (isFinal) {
+            for (Map.Entry<String, Integer> entry : rejections.entrySet())
+                System.out.println("  Rejected by " + entry.getKey() + ": " + entry.getValue());
+            if (failure != null)
+                System.err.println(failure);
+        }
+    }
+
+    private static List<Symmetry> parseSymmetries(String arg) {
+        List<Symmetry> result = new ArrayList<>();
+        for (String name : arg.split(","))
+            result.add(Symmetry.valueOf(name.trim()));
+        return result;
+    }
+
+    /**
+     * Generate Sudokus and store them in a file.
+     * @param args the number of Sudokus, the minimal and maximal difficulty,
+     * the number of threads, the output file name and optionally a comma-separated
+     * list of symmetries (for instance "Orthogonal,Rotational180"), the seed of
+     * the run (random if not given) and the index of the first Sudoku (0 if
+     * not given). The exit status is not zero if some Sudokus were not written.
+     */
+    public static void main(String[] args) {
+        if (args.length < 5 || args.length > 8)
+            throw new IllegalArgumentException("Expected arguments: count minDifficulty"
+                    + " maxDifficulty threads fileName [symmetries [seed [firstIndex]]]");
+        int count = Integer.parseInt(args[0]);
+        double minDifficulty = Double.parseDouble(args[1]);
+        double maxDifficulty = Double.parseDouble(args[2]);
+        int nbThreads = Integer.parseInt(args[3]);
+        String fileName = args[4];
+        List<Symmetry> symmetries;
+        if (args.length >= 6)
+            symmetries = parseSymmetries(args[5]);
+        else
+            symmetries = Arrays.asList(Symmetry.Orthogonal, Symmetry.BiDiagonal,
+                    Symmetry.Rotational180, Symmetry.Rotational90, Symmetry.Full);
+        long seed = (args.length >= 7 ? Long.parseLong(args[6]) : new Random().nextLong());
+        long firstIndex = (args.length >= 8 ? Long.parseLong(args[7]) : 0L);
+        if (count < 0 || nbThreads < 1 || minDifficulty > maxDifficulty || firstIndex < 0)
+            throw new IllegalArgumentException("Invalid arguments");
+        System.out.println("Seed: " + seed + ", first index: " + firstIndex);
+        PrintWriter writer = null;
+        boolean isComplete = false;
+        try {
+            writer = new PrintWriter(new BufferedWriter(new FileWriter(fileName)));
+            BatchGenerator batch = new BatchGenerator(symmetries, minDifficulty,
+                    maxDifficulty, count, seed, firstIndex, writer);
+            isComplete = batch.run(nbThreads);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } catch (InterruptedException ex) {
+            ex.printStackTrace();
+        } finally {
+            if (writer != null)
+                writer.close();
+        }
+        if (!isComplete)
+            System.exit(1);
+    }
+
+}
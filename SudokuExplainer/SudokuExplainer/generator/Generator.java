@@ -9,8 +9,60 @@ import SudokuExplainer.units.*;
 
 public class Generator {
 
+    /**
+     * Increment of the seed of {@link SplittableRandom} between two
+     * consecutive values of its stream
+     */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
     private final BruteForceAnalysis analyser = new BruteForceAnalysis(true);
-    private boolean isInterrupted = false;
+    private volatile boolean isInterrupted = false;
+
+    private final List<RatingFilter> filters = new ArrayList<>();
+    private final Map<RatingFilter, Integer> filterRejections = new HashMap<>();
+    private int generatedCount = 0;
+    private int tooEasyCount = 0;
+    private int tooHardCount = 0;
+    private Quad<Double, Double, Double, Integer> lastDifficultyInfo = null;
+
+
+    public Generator() {
+        addFilter(new SinglesFilter());
+    }
+
+    /**
+     * Add a filter to the early rejection stage. Filters are run in the order
+     * they were added, before the (expensive) analysis of the difficulty.
+     * @param filter the filter to add
+     */
+    public void addFilter(RatingFilter filter) {
+        filters.add(filter);
+        filterRejections.put(filter, 0);
+    }
+
+    /**
+     * Get the number of grids that were generated so far, including
+     * the rejected ones.
+     * @return the number of generated grids
+     */
+    public int getGeneratedCount() {
+        return generatedCount;
+    }
+
+    /**
+     * Get the number of grids rejected by each stage so far: first each filter
+     * of the early rejection stage, in order, and then the difficulty analysis
+     * (too easy and too difficult grids).
+     * @return the number of rejected grids per stage name
+     */
+    public Map<String, Integer> getRejections() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (RatingFilter filter : filters)
+            result.put(filter.toString(), filterRejections.get(filter));
+        result.put("Analysis (too easy)", tooEasyCount);
+        result.put("Analysis (too hard)", tooHardCount);
+        return result;
+    }
 
     /**
      * Generate a Sudoku grid matching the given parameters.
@@ -18,15 +70,57 @@ public class Generator {
      * Depending on the given parameters, the generation can take very
      * long. The implementation actually repeatedly generates random
      * grids with the given symmetries until the difficulty is between
-     * the given bounds.
+     * the given bounds. Grids that are proven too easy by the filters
+     * (see {@link #addFilter(RatingFilter)}) are rejected without analysing
+     * their difficulty.
      * @param symmetries the symmetries the resulting grid is allowed to have
      * @param minDifficulty the minimum difficulty of the grid
      * @param maxDifficulty the maximum difficulty of the grid
      * @return the generated grid
      */
     public Grid generate(List<Symmetry> symmetries, double minDifficulty, double maxDifficulty) {
+        return generate(new Random(), symmetries, minDifficulty, maxDifficulty);
+    }
+
+    /**
+     * Generate the Sudoku grid number <tt>index</tt> of a reproducible run.
+     * <p>
+     * The result only depends on the seed, the index and the other parameters,
+     * but not on the grids that were generated before by this generator or
+     * by any other one. A run can therefore be partitioned between several
+     * threads or machines, and any grid of it can be generated again on demand.
+     * @param seed the seed of the run
+     * @param index the index of the grid in the run, starting at 0
+     * @param symmetries the symmetries the resulting grid is allowed to have
+     * @param minDifficulty the minimum difficulty of the grid
+     * @param maxDifficulty the maximum difficulty of the grid
+     * @return the generated grid, or <tt>null</tt> if interrupted
+     * @see #getRandom(long, long)
+     */
+    public Grid generate(long seed, long index, List<Symmetry> symmetries,
+            double minDifficulty, double maxDifficulty) {
+        return generate(getRandom(seed, index), symmetries, minDifficulty, maxDifficulty);
+    }
+
+    /**
+     * Get the random generator used for the grid number <tt>index</tt> of
+     * a reproducible run.
+     * <p>
+     * Its seed is the value number <tt>index</tt> of the stream of a
+     * {@link SplittableRandom} created with the seed of the run, which
+     * can be computed directly, without computing the previous values.
+     * @param seed the seed of the run
+     * @param index the index of the grid in the run, starting at 0
+     * @return the random generator
+     */
+    public static Random getRandom(long seed, long index) {
+        long gridSeed = new SplittableRandom(seed + index * GOLDEN_GAMMA).nextLong();
+        return new Random(gridSeed);
+    }
+
+    private Grid generate(Random random, List<Symmetry> symmetries,
+            double minDifficulty, double maxDifficulty) {
         assert !symmetries.isEmpty() : "No symmetries specified";
-        Random random = new Random();
         int symmetryIndex = random.nextInt(symmetries.size());
         while (true) {
             // Generate a random grid
@@ -35,21 +129,62 @@ public class Generator {
             Grid grid = generate(random, symmetry);
 
             if (isInterrupted) return null;
+            generatedCount++;
 
             // Analyse difficulty
             Grid copy = new Grid();
             grid.copyTo(copy);
-            Solver solver = new Solver(copy);
-            solver.rebuildPotentialValues();
-            Quad<Double, Double, Double, Integer> difficultyInfo = solver.analyseDifficulty(minDifficulty, maxDifficulty);
-            double difficulty = difficultyInfo.getValue1();
-            if (difficulty >= minDifficulty && difficulty <= maxDifficulty)
-                return grid;
+            Solver.rebuildPotentialValues(copy);
+            if (!isRejectedByFilters(copy, minDifficulty)) {
+                Solver solver = Solver.acquire(copy);
+                Quad<Double, Double, Double, Integer> difficultyInfo;
+                try {
+                    difficultyInfo = solver.analyseDifficulty(minDifficulty, maxDifficulty);
+                } finally {
+                    solver.release();
+                }
+                double difficulty = difficultyInfo.getValue1();
+                if (difficulty < minDifficulty)
+                    tooEasyCount++;
+                else if (difficulty > maxDifficulty)
+                    tooHardCount++;
+                else {
+                    lastDifficultyInfo = difficultyInfo;
+                    return grid;
+                }
+            }
 
             if (isInterrupted) return null;
         }
     }
 
+    /**
+     * Get the difficulty information of the last grid returned by
+     * {@link #generate(List, double, double)}.
+     * @return the difficulty, pearl difficulty, diamond difficulty and number
+     * of steps, as computed by {@link Solver#analyseDifficulty(double, double)},
+     * or <tt>null</tt> if no grid was generated yet
+     */
+    public Quad<Double, Double, Double, Integer> getLastDifficultyInfo() {
+        return lastDifficultyInfo;
+    }
+
+    /**
+     * Run the early rejection stage on a generated grid.
+     * @param grid the grid, with its potential values
+     * @param minDifficulty the minimum difficulty of the grid
+     * @return whether one of the filters proved that the grid is too easy
+     */
+    private boolean isRejectedByFilters(Grid grid, double minDifficulty) {
+        for (RatingFilter filter : filters) {
+            if (filter.isTooEasy(grid, minDifficulty)) {
+                filterRejections.put(filter, filterRejections.get(filter) + 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Generate a random grid with the given symmetry
      * @param rnd the random gene
@@ -81,6 +216,11 @@ public class Generator {
         int attempts = 0;
         int successes = 0;
 
+        // Removing cells only adds solutions: once the cells of an index
+        // failed to be removed, they can never be removed later.
+        boolean[] isNonRemovable = new boolean[81];
+        List<Cell> removedCells = new ArrayList<>();
+
         // Randomly remove clues
         boolean isSuccess = true;
         while (isSuccess) {
@@ -89,33 +229,37 @@ public class Generator {
             int countDown = 81; // Number of cells
             isSuccess = false;
             do {
+                if (isNonRemovable[index]) {
+                    index = (index + 1) % 81;
+                    countDown--;
+                    continue;
+                }
                 // Build symmetric points list
                 int y = indexes[index] / 9;
                 int x = indexes[index] % 9;
                 Point[] points = symmetry.getPoints(x, y);
 
                 // Remove cells
-                boolean cellRemoved = false;
+                removedCells.clear();
                 for (Point p : points) {
                     Cell cell = grid.getCell(p.x, p.y);
                     if (cell.getValue() != 0) {
                         cell.setValue(0);
-                        cellRemoved = true;
+                        removedCells.add(cell);
                     }
                 }
-                if (cellRemoved) {
+                if (!removedCells.isEmpty()) {
                     // Test if the Sudoku still has an unique solution
-                    int state = analyser.getCountSolutions(grid);
-                    if (state == 1) {
+                    Solver.rebuildPotentialValues(grid);
+                    if (!analyser.hasOtherSolution(grid, solution, removedCells)) {
                         // Cells successfully removed: still a unique solution
                         isSuccess = true;
                         successes++;
-                    } else if (state == 0) {
-                        assert false : "Invalid grid";
                     } else {
                         // Failed. Put the cells back and try with next cell
                         for (Point p : points)
                             grid.setCellValue(p.x, p.y, solution.getCellValue(p.x, p.y));
+                        isNonRemovable[index] = true;
                         attempts++;
                     }
                 }
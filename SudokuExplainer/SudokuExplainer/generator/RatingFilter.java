@@ -0,0 +1,32 @@
+package SudokuExplainer.generator;
+
+import SudokuExplainer.units.Grid;
+
+/**
+ * A cheap test run by the {@link Generator} on a generated grid, before its
+ * difficulty is analysed by the solver.
+ * <p>
+ * A filter is allowed to reject a grid only if it can prove that the grid
+ * is less difficult than the requested minimal difficulty. When it cannot
+ * decide, the grid is passed to the next filter, and finally to the solver.
+ */
+public interface RatingFilter {
+
+    /**
+     * Test whether the given grid is less difficult than the given
+     * minimal difficulty.
+     * @param grid the grid to test, with its potential values. The grid
+     * must not be modified.
+     * @param minDifficulty the minimal difficulty of the grids to generate
+     * @return <tt>true</tt> if the grid is proven to be less difficult than
+     * <tt>minDifficulty</tt>, <tt>false</tt> if it is not, or if this filter
+     * cannot decide
+     */
+    boolean isTooEasy(Grid grid, double minDifficulty);
+
+    /**
+     * Get the name of this filter, used in the generator statistics.
+     */
+    String toString();
+
+}
@@ -0,0 +1,64 @@
+package SudokuExplainer.generator;
+
+import SudokuExplainer.*;
+import SudokuExplainer.solver.*;
+import SudokuExplainer.solver.rules.directed.*;
+import SudokuExplainer.units.*;
+
+/**
+ * Rejects the grids that can be solved using naked and hidden singles only.
+ * <p>
+ * As long as a single is available, the solver always picks it or an easier
+ * direct hint. Because applying a hint never makes a single disappear, the
+ * difficulty of such a grid cannot exceed the difficulty of a naked single.
+ */
+public class SinglesFilter implements RatingFilter {
+
+    /**
+     * Difficulty of the Naked Single rule, the hardest of the direct hints
+     * the solver can pick while singles are remaining.
+     */
+    private static final double MAX_DIFFICULTY = 2.3;
+
+    private final Grid work = new Grid();
+    private final DirectHintProducer hiddenSingle = new HiddenSingle();
+    private final DirectHintProducer nakedSingle = new NakedSingle();
+
+
+    public boolean isTooEasy(Grid grid, double minDifficulty) {
+        if (minDifficulty <= MAX_DIFFICULTY)
+            return false;
+        Settings settings = Settings.getInstance();
+        if (!settings.isUsingAll(SolvingTechnique.HiddenSingle, SolvingTechnique.NakedSingle))
+            return false; // The solver may have to use other techniques
+        grid.copyTo(work);
+        Hint hint = null;
+        do {
+            if (hint != null)
+                hint.apply();
+            SingleHintAccumulator accu = new SingleHintAccumulator();
+            try {
+                nakedSingle.getHints(work, accu);
+                hiddenSingle.getHints(work, accu);
+            } catch (InterruptedException ignored) {}
+            hint = accu.getHint();
+        } while (hint != null);
+        return isSolved(work);
+    }
+
+    private static boolean isSolved(Grid grid) {
+        for (int y = 0; y < 9; y++) {
+            for (int x = 0; x < 9; x++) {
+                if (grid.getCellValue(x, y) == 0)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "Singles only";
+    }
+
+}
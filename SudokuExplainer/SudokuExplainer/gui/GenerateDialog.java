@@ -536,8 +536,7 @@ public class GenerateDialog extends JDialog {
             // Display analysis of the Sudoku
             Hint analysis = sudokuAnalyses.get(sudoku);
             if (analysis == null) {
-                analysis = engine.analyse();
-                sudokuAnalyses.put(sudoku, analysis);
+                engine.analyse(result -> sudokuAnalyses.put(sudoku, result));
             } else {
                 engine.showHint(analysis);
             }
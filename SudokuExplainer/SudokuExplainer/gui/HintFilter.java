@@ -0,0 +1,94 @@
+package SudokuExplainer.gui;
+
+import java.util.*;
+import SudokuExplainer.solver.*;
+import SudokuExplainer.units.*;
+
+/**
+ * Filter of the hints that do not bring anything new
+ * compared to the hints already accepted.
+ * <p>
+ * A hint is worth if it gives the value of a cell that no accepted hint
+ * gives, or if it removes a potential value that no accepted hint removes.
+ * The state of the filter is kept in one <tt>int</tt> per cell, updated
+ * incrementally as hints are accepted: the potential values removed from the
+ * cell (bit <tt>value - 1</tt>), whether its value is given, and whether
+ * the cell appeared in the removable potentials of an accepted hint.
+ */
+class HintFilter {
+
+    private static final int GIVEN = 1 << 9;
+    private static final int RECORDED = 1 << 10;
+
+    private final int[] cellStates = new int[81];
+    private boolean isEmpty = true;
+
+
+    private static int getIndex(Cell cell) {
+        return cell.getY() * 9 + cell.getX();
+    }
+
+    private static int getMask(BitSet values) {
+        int result = 0;
+        for (int value = values.nextSetBit(1); value >= 0; value = values.nextSetBit(value + 1))
+            result |= 1 << (value - 1);
+        return result;
+    }
+
+    /**
+     * Get whether no hint has been accepted since the creation
+     * of this filter or its last reset
+     */
+    boolean isEmpty() {
+        return isEmpty;
+    }
+
+    /**
+     * Forget the accepted hints
+     */
+    void clear() {
+        if (!isEmpty) {
+            Arrays.fill(cellStates, 0);
+            isEmpty = true;
+        }
+    }
+
+    /**
+     * Test whether a hint brings something new
+     * @param hint the hint
+     * @return whether the hint is not filtered out
+     */
+    boolean isWorth(Hint hint) {
+        if (hint instanceof DirectHint)
+            return (cellStates[getIndex(hint.getCell())] & GIVEN) == 0;
+        if (hint instanceof WarningHint)
+            return true;
+        IndirectHint indirectHint = (IndirectHint)hint;
+        for (Map.Entry<Cell, BitSet> entry : indirectHint.getRemovablePotentials().entrySet()) {
+            int state = cellStates[getIndex(entry.getKey())];
+            if ((state & RECORDED) == 0 || (getMask(entry.getValue()) & ~state) != 0)
+                return true;
+        }
+        Cell cell = indirectHint.getCell();
+        return (cell != null) && (cellStates[getIndex(cell)] & GIVEN) == 0;
+    }
+
+    /**
+     * Accept a hint: the hints bringing nothing more are filtered out from now on
+     * @param hint the hint
+     */
+    void add(Hint hint) {
+        isEmpty = false;
+        if (hint instanceof DirectHint) {
+            cellStates[getIndex(hint.getCell())] |= GIVEN;
+        } else {
+            IndirectHint indirectHint = (IndirectHint)hint;
+            for (Map.Entry<Cell, BitSet> entry : indirectHint.getRemovablePotentials().entrySet())
+                cellStates[getIndex(entry.getKey())] |= RECORDED | getMask(entry.getValue());
+            Cell cell = indirectHint.getCell();
+            if (cell != null)
+                cellStates[getIndex(cell)] |= GIVEN;
+        }
+    }
+
+}
@@ -12,17 +12,20 @@ public class HintNode extends DefaultMutableTreeNode {
     private static final long serialVersionUID = 7857073221166387482L;
 
     private final Hint hint;
+    private final String label;
     private String name;
 
     public HintNode(Hint hint) {
         super();
         this.hint = hint;
-        this.name = hint.toString();
+        this.label = hint.toString();
+        this.name = this.label;
     }
 
     HintNode(String name) {
         super();
         this.hint = null;
+        this.label = name;
         this.name = name;
     }
 
@@ -70,9 +73,13 @@ public class HintNode extends DefaultMutableTreeNode {
         return null;
     }
 
+    /**
+     * Append the number of hints below this node to its name,
+     * replacing the number appended by a previous call, if any.
+     */
     void appendCountChildrenToName() {
         int count = getCountHints();
-        this.name += " (" + count + " hint" + (count <= 1 ? ")" : "s)");
+        this.name = this.label + " (" + count + " hint" + (count <= 1 ? ")" : "s)");
     }
 
     @Override
@@ -1,12 +1,16 @@
 package SudokuExplainer.gui;
 
 import java.util.*;
+import javax.swing.tree.*;
 import SudokuExplainer.solver.*;
 
 /**
  * Builder for the hints tree. This class is responsible
  * for the classification of hints in groups, and counting
  * the number of hints in groups.
+ * <p>
+ * The tree can be built at once, or grown incrementally while
+ * the hints are found: see {@link #addHints(List, DefaultTreeModel)}.
  */
 public class HintsTreeBuilder {
 
@@ -15,6 +19,15 @@ public class HintsTreeBuilder {
     private HintNode _warningHintsNode = null;
     private HintNode _indirectHintsNode = null;
 
+    private final Map<String,HintNode> directHintsNodes = new HashMap<>();
+    private final Map<String,HintNode> warningHintsNodes = new HashMap<>();
+    private final Map<String,HintNode> indirectHintsNodes = new HashMap<>();
+
+    /*
+     * The model to notify of the changes, while hints are added
+     */
+    private DefaultTreeModel model = null;
+
     private HintNode root() {
         return _root;
     }
@@ -22,7 +35,7 @@ public class HintsTreeBuilder {
     private HintNode directHintsNode() {
         if (_directHintsNode == null) {
             _directHintsNode = new HintNode("Sudoku Rules");
-            root().insert(_directHintsNode, 0);
+            insert(root(), _directHintsNode, 0);
         }
         return _directHintsNode;
     }
@@ -30,7 +43,7 @@ public class HintsTreeBuilder {
     private HintNode warningHintsNode() {
         if (_warningHintsNode == null) {
             _warningHintsNode = new HintNode("Informations");
-            root().add(_warningHintsNode);
+            insert(root(), _warningHintsNode, root().getChildCount());
         }
         return _warningHintsNode;
     }
@@ -38,62 +51,78 @@ public class HintsTreeBuilder {
     private HintNode indirectHintsNode() {
         if (_indirectHintsNode == null) {
             _indirectHintsNode = new HintNode("Solving Techniques");
-            root().add(_indirectHintsNode);
+            insert(root(), _indirectHintsNode, root().getChildCount());
         }
         return _indirectHintsNode;
     }
 
+    private void insert(HintNode parent, HintNode child, int index) {
+        if (model != null)
+            model.insertNodeInto(child, parent, index);
+        else
+            parent.insert(child, index);
+    }
+
+    private HintNode producerNode(HintNode categoryNode, Map<String,HintNode> producerNodes,
+            String producerName) {
+        HintNode result = producerNodes.get(producerName);
+        if (result == null) {
+            result = new HintNode(producerName);
+            insert(categoryNode, result, categoryNode.getChildCount());
+            producerNodes.put(producerName, result);
+        }
+        return result;
+    }
+
     public HintNode buildHintsTree(List<Hint> hints) {
-        Map<String,HintNode> directHintsNodes = new HashMap<>();
-        Map<String,HintNode> warningHintsNodes = new HashMap<>();
-        Map<String,HintNode> indirectHintsNodes = new HashMap<>();
-        for (Hint hint : hints) {
-            if (hint instanceof DirectHint) {
-                DirectHint directHint = (DirectHint)hint;
-                String producerName = directHint.getRule().toString();
-                HintNode parent = directHintsNodes.get(producerName);
-                if (parent == null) {
-                    parent = new HintNode(producerName);
-                    directHintsNode().add(parent);
-                    directHintsNodes.put(producerName, parent);
-                }
-                HintNode node = new HintNode(hint);
-                parent.add(node);
-            } else if (hint instanceof WarningHint) {
-                WarningHint iHint = (WarningHint)hint;
-                String producerName = iHint.getRule().toString();
-                HintNode parent = warningHintsNodes.get(producerName);
-                if (parent == null) {
-                    parent = new HintNode(producerName);
-                    warningHintsNode().add(parent);
-                    warningHintsNodes.put(producerName, parent);
-                }
-                HintNode node = new HintNode(hint);
-                parent.add(node);
-            } else {
-                IndirectHint iHint = (IndirectHint)hint;
-                String producerName = iHint.getRule().toString();
-                HintNode parent = indirectHintsNodes.get(producerName);
-                if (parent == null) {
-                    parent = new HintNode(producerName);
-                    indirectHintsNode().add(parent);
-                    indirectHintsNodes.put(producerName, parent);
+        addHints(hints, null);
+        return _root;
+    }
+
+    /**
+     * Add hints to the tree built so far, and update the number of hints
+     * displayed in the names of the groups.
+     * @param hints the hints to add
+     * @param model the model of the displayed tree, that is notified of
+     * the inserted and renamed nodes, or <tt>null</tt> if the tree is not
+     * displayed yet
+     * @return the root of the tree
+     */
+    public HintNode addHints(List<Hint> hints, DefaultTreeModel model) {
+        this.model = model;
+        try {
+            Set<HintNode> countedNodes = new LinkedHashSet<>();
+            countedNodes.add(root());
+            for (Hint hint : hints) {
+                HintNode parent;
+                if (hint instanceof DirectHint) {
+                    DirectHint directHint = (DirectHint)hint;
+                    String producerName = directHint.getRule().toString();
+                    parent = producerNode(directHintsNode(), directHintsNodes, producerName);
+                    countedNodes.add(directHintsNode());
+                    countedNodes.add(parent);
+                } else if (hint instanceof WarningHint) {
+                    WarningHint iHint = (WarningHint)hint;
+                    String producerName = iHint.getRule().toString();
+                    parent = producerNode(warningHintsNode(), warningHintsNodes, producerName);
+                } else {
+                    IndirectHint iHint = (IndirectHint)hint;
+                    String producerName = iHint.getRule().toString();
+                    parent = producerNode(indirectHintsNode(), indirectHintsNodes, producerName);
+                    countedNodes.add(indirectHintsNode());
+                    countedNodes.add(parent);
                 }
-                HintNode node = new HintNode(hint);
-                parent.add(node);
+                insert(parent, new HintNode(hint), parent.getChildCount());
+            }
+            for (HintNode node : countedNodes) {
+                node.appendCountChildrenToName();
+                if (model != null)
+                    model.nodeChanged(node);
             }
+            return _root;
+        } finally {
+            this.model = null;
         }
-        if (_root != null)
-            _root.appendCountChildrenToName();
-        if (_directHintsNode != null)
-            _directHintsNode.appendCountChildrenToName();
-        if (_indirectHintsNode != null)
-            _indirectHintsNode.appendCountChildrenToName();
-        for (HintNode topNode : directHintsNodes.values())
-            topNode.appendCountChildrenToName();
-        for (HintNode topNode : indirectHintsNodes.values())
-            topNode.appendCountChildrenToName();
-        return _root;
     }
 
 }
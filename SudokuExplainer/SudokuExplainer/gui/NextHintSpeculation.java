@@ -0,0 +1,145 @@
+package SudokuExplainer.gui;
+
+import java.util.*;
+import java.util.concurrent.*;
+import SudokuExplainer.solver.*;
+import SudokuExplainer.tools.*;
+import SudokuExplainer.units.*;
+
+/**
+ * Speculative search of the next hint, run in the background
+ * while the user looks at the grid.
+ * <p>
+ * The search runs at low priority on a copy of the grid, with its own solver,
+ * so that the user can keep modifying the grid meanwhile. Because the hints
+ * that are found refer to the cells of the copy, the copy and its solver
+ * replace the grid and the solver of the user interface when the result is used.
+ * <p>
+ * The result is only valid as long as the grid it was copied from, the solver
+ * and the filter of the hints are not modified (see {@link #isValidFor(Grid, Solver, boolean)}).
+ * The search is inconclusive if it would have to ask the user whether to use
+ * the advanced techniques: the next hint must then be searched for again.
+ */
+class NextHintSpeculation {
+
+    /**
+     * The search of the next hint
+     */
+    interface Search {
+        /**
+         * Search the next hint
+         * @param solver the solver of the copy of the grid
+         * @param hints the list to which the hints found on the way are added
+         * @param asker the asker to use in place of the user
+         * @return the next hint, or <tt>null</tt> if none was found
+         */
+        Hint search(Solver solver, List<Hint> hints, Asker asker);
+    }
+
+    private final Grid source;
+    private final long changeCount;
+    private final Solver sourceSolver;
+    private final boolean isFiltered;
+
+    private final Grid grid;
+    private final Solver solver;
+    private final List<Hint> hints = new ArrayList<>();
+    private final FutureTask<Hint> future;
+    private final Thread thread;
+    private volatile boolean isConclusive = true;
+
+
+    /**
+     * Start the speculative search of the next hint
+     * @param source the grid displayed to the user
+     * @param sourceSolver the solver of the displayed grid
+     * @param isFiltered whether the hints are filtered
+     * @param search the search to run on the copy of the grid
+     */
+    NextHintSpeculation(Grid source, Solver sourceSolver, boolean isFiltered, Search search) {
+        this.source = source;
+        this.changeCount = source.getChangeCount();
+        this.sourceSolver = sourceSolver;
+        this.isFiltered = isFiltered;
+        this.grid = new Grid();
+        source.copyTo(this.grid);
+        this.solver = new Solver(this.grid);
+        this.future = new FutureTask<>(() -> search.search(solver, hints, question -> {
+            isConclusive = false;
+            return false;
+        }));
+        this.thread = new Thread(future, "Next hint speculation");
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MIN_PRIORITY);
+        this.thread.start();
+    }
+
+    /**
+     * Test whether the result of this search is still valid
+     * @param source the grid displayed to the user
+     * @param sourceSolver the solver of the displayed grid
+     * @param isFiltered whether the hints are filtered
+     * @return whether nothing was modified since this search was started
+     */
+    boolean isValidFor(Grid source, Solver sourceSolver, boolean isFiltered) {
+        return source == this.source && source.getChangeCount() == this.changeCount
+                && sourceSolver == this.sourceSolver && isFiltered == this.isFiltered;
+    }
+
+    /**
+     * Stop this search. Its result is discarded.
+     */
+    void cancel() {
+        thread.interrupt();
+    }
+
+    /**
+     * Wait for the end of this search
+     * @return the next hint, or <tt>null</tt> if none was found
+     * or if the search was inconclusive
+     * @throws InterruptedException if the current thread is interrupted
+     * while waiting
+     */
+    Hint get() throws InterruptedException {
+        // The user is waiting for the result now
+        thread.setPriority(Thread.currentThread().getPriority());
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            isConclusive = false;
+            return null;
+        }
+    }
+
+    /**
+     * Get whether this search found the same hint as a search on the displayed grid.
+     * Only meaningful once {@link #get()} has returned.
+     * @return whether the result of this search can be used
+     */
+    boolean isConclusive() {
+        return isConclusive;
+    }
+
+    /**
+     * Get the copy of the grid the hints refer to
+     */
+    Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Get the solver of the copy of the grid
+     */
+    Solver getSolver() {
+        return solver;
+    }
+
+    /**
+     * Get the hints found by the search, the next hint included.
+     * Only meaningful once {@link #get()} has returned.
+     */
+    List<Hint> getHints() {
+        return hints;
+    }
+
+}
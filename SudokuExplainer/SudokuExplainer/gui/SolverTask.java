@@ -0,0 +1,187 @@
+package SudokuExplainer.gui;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import javax.swing.*;
+import SudokuExplainer.solver.*;
+import SudokuExplainer.tools.*;
+
+/**
+ * A computation of the solver, run in the background.
+ * <p>
+ * The computation runs on a worker thread, so that the user interface
+ * remains responsive while hard Sudokus are solved. The progress reported
+ * by the solver is displayed by the frame, and the result is handed back
+ * on the event dispatch thread.
+ * <p>
+ * The computation can also hand its hints to the task as soon as they are
+ * found. They are passed to the hints handler on the event dispatch thread,
+ * in batches: the updates published while the event dispatch thread is busy
+ * are coalesced by the <tt>SwingWorker</tt>, so the hints tree is not
+ * repainted for every single hint.
+ * <p>
+ * Cancellation is cooperative: {@link #stop()} interrupts the worker thread,
+ * and the solver stops at its next check (see {@link Solver#checkCancelled()}).
+ * The task only completes once the worker thread has actually stopped,
+ * so that the grid is not modified by the user while the solver works on it.
+ * @param <T> the type of the result of the computation
+ */
+class SolverTask<T> extends SwingWorker<T, SolverTask.Update>
+        implements ProgressListener, HintsAccumulator {
+
+    /**
+     * A computation of the solver
+     */
+    interface Computation<T> {
+        /**
+         * Run the computation
+         * @param hints the accumulator to pass the hints to, as soon as they are found
+         * @return the result of the computation
+         */
+        T compute(HintsAccumulator hints) throws Exception;
+    }
+
+    /**
+     * An update published by the worker thread: either a progress, or a hint
+     */
+    static class Update {
+        private final String task;
+        private final double progress;
+        private final Hint hint;
+
+        Update(String task, double progress) {
+            this.task = task;
+            this.progress = progress;
+            this.hint = null;
+        }
+
+        Update(Hint hint) {
+            this.task = null;
+            this.progress = 0;
+            this.hint = hint;
+        }
+    }
+
+    private final SudokuExplainer engine;
+    private final SudokuFrame frame;
+    private final Solver solver;
+    private final Computation<T> computation;
+    private final Consumer<List<Hint>> hintsHandler;
+    private final Consumer<T> resultHandler;
+    private final Consumer<Throwable> errorHandler;
+
+    private Thread worker = null;
+    private boolean isCancelRequested = false;
+    private boolean isCompleted = false;
+
+
+    /**
+     * Create a new task
+     * @param engine the engine to notify when the task completes
+     * @param frame the frame displaying the progress
+     * @param solver the solver used by the computation, whose progress to report
+     * @param computation the computation, run on the worker thread
+     * @param hintsHandler the handler of the hints found by the computation,
+     * called on the event dispatch thread before the task completes, or <tt>null</tt>.
+     * The hints it has not received yet when the task completes are discarded.
+     * @param resultHandler the handler of the result, called on the event dispatch
+     * thread unless the task was cancelled
+     * @param errorHandler the handler of the errors thrown by the computation,
+     * called on the event dispatch thread unless the task was cancelled
+     */
+    SolverTask(SudokuExplainer engine, SudokuFrame frame, Solver solver, Computation<T> computation,
+            Consumer<List<Hint>> hintsHandler, Consumer<T> resultHandler,
+            Consumer<Throwable> errorHandler) {
+        this.engine = engine;
+        this.frame = frame;
+        this.solver = solver;
+        this.computation = computation;
+        this.hintsHandler = hintsHandler;
+        this.resultHandler = resultHandler;
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Get the solver used by the computation
+     */
+    Solver getSolver() {
+        return solver;
+    }
+
+    /**
+     * Request the cancellation of this task. The result of the
+     * computation, if any, is discarded.
+     */
+    synchronized void stop() {
+        isCancelRequested = true;
+        if (worker != null)
+            worker.interrupt();
+    }
+
+    @Override
+    protected T doInBackground() throws Exception {
+        synchronized (this) {
+            if (isCancelRequested)
+                throw new CancellationException();
+            worker = Thread.currentThread();
+        }
+        int priority = worker.getPriority();
+        solver.setProgressListener(this);
+        try {
+            return computation.compute(this);
+        } finally {
+            solver.setProgressListener(null);
+            synchronized (this) {
+                worker.setPriority(priority);
+                worker = null;
+                Thread.interrupted(); // The worker thread is reused
+            }
+        }
+    }
+
+    public void progress(String task, double progress) {
+        publish(new Update(task, progress));
+    }
+
+    public void add(Hint hint) {
+        if (hintsHandler != null)
+            publish(new Update(hint));
+    }
+
+    @Override
+    protected void process(List<Update> chunks) {
+        if (isCancelRequested || isCompleted)
+            return;
+        Update progress = null;
+        List<Hint> hints = new ArrayList<>();
+        for (Update update : chunks) {
+            if (update.hint != null)
+                hints.add(update.hint);
+            else
+                progress = update;
+        }
+        if (progress != null)
+            frame.setProgress(progress.task, progress.progress);
+        if (!hints.isEmpty())
+            hintsHandler.accept(hints);
+    }
+
+    @Override
+    protected void done() {
+        isCompleted = true;
+        try {
+            T result = get();
+            if (!isCancelRequested)
+                resultHandler.accept(result);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (!isCancelRequested && !(cause instanceof CancellationException))
+                errorHandler.accept(cause);
+        } catch (InterruptedException | CancellationException ignored) {
+        } finally {
+            engine.taskDone(this);
+        }
+    }
+
+}
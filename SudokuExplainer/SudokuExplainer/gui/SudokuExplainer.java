@@ -8,6 +8,9 @@ import java.awt.datatransfer.UnsupportedFlavorException;
 import java.io.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import javax.swing.*;
 import SudokuExplainer.units.*;
 import SudokuExplainer.Settings;
@@ -27,11 +30,23 @@ public class SudokuExplainer {
     private List<Hint> filteredHints = null;
     private boolean isFiltered = true;
     private List<Hint> selectedHints = new ArrayList();
+    private HintsTreeBuilder hintsTreeBuilder = null;
 
-    private Stack<Grid> gridStack = new Stack();
+    private final UndoJournal journal = new UndoJournal(Settings.getInstance().getUndoLimit());
 
-    Set<Cell> givenCells = new HashSet();
-    Map<Cell, BitSet> removedPotentials = new HashMap();
+    private final HintFilter filter = new HintFilter();
+
+    /*
+     * The solver task running in the background, if any, and the task to run
+     * once it has stopped. The grid must not be modified while a task runs.
+     */
+    private SolverTask<?> task = null;
+    private SolverTask<?> nextTask = null;
+
+    /*
+     * The search of the next hint running ahead of the user, if any
+     */
+    private NextHintSpeculation speculation = null;
 
     public SudokuExplainer() {
         this.grid = new Grid();
@@ -56,47 +71,11 @@ public class SudokuExplainer {
     }
 
     private void resetFilterCache() {
-        this.givenCells = new HashSet();
-        this.removedPotentials = new HashMap();
+        this.filter.clear();
     }
 
     private boolean isWorth(Hint hint) {
-        if (!this.isFiltered) {
-            return true;
-        }
-        boolean isWorth;
-        if ((hint instanceof DirectHint)) {
-            isWorth = isWorth(this.givenCells, (DirectHint)hint);
-        } else {
-            isWorth = isWorth(this.removedPotentials, this.givenCells, (IndirectHint)hint);
-        }
-        return isWorth;
-    }
-
-    private boolean isWorth(Set<Cell> givenCells, DirectHint hint) {
-        return !givenCells.contains(hint.getCell());
-    }
-
-    private boolean isWorth(Map<Cell, BitSet> removedPotentials, Set<Cell> givenCells, IndirectHint hint) {
-        if ((hint instanceof WarningHint)) {
-            return true;
-        }
-        Map<Cell, BitSet> removablePotentials = hint.getRemovablePotentials();
-        for (Cell cell : removablePotentials.keySet())
-        {
-            BitSet removable = removablePotentials.get(cell);
-            BitSet previous = removedPotentials.get(cell);
-            if (previous == null) {
-                return true;
-            }
-            BitSet newRemove = (BitSet)removable.clone();
-            newRemove.andNot(previous);
-            if (!newRemove.isEmpty()) {
-                return true;
-            }
-        }
-        Cell cell = hint.getCell();
-        return (cell != null) && (!givenCells.contains(cell));
+        return !this.isFiltered || this.filter.isWorth(hint);
     }
 
     private void filterHints() {
@@ -117,33 +96,17 @@ public class SudokuExplainer {
 
     private void addFilteredHintAndUpdateFilter(Hint hint) {
         this.filteredHints.add(hint);
-        if ((hint instanceof DirectHint)) {
-            DirectHint dHint = (DirectHint)hint;
-            this.givenCells.add(dHint.getCell());
-        } else {
-            IndirectHint indirectHint = (IndirectHint)hint;
-            Map<Cell, BitSet> removablePotentials = indirectHint.getRemovablePotentials();
-            for (Cell cell : removablePotentials.keySet()) {
-                BitSet removable = removablePotentials.get(cell);
-                BitSet current = this.removedPotentials.get(cell);
-                if (current == null) {
-                    current = new BitSet(10);
-                    this.removedPotentials.put(cell, current);
-                }
-                current.or(removable);
-            }
-            Cell cell = indirectHint.getCell();
-            if (cell != null) {
-                this.givenCells.add(cell);
-            }
-        }
+        this.filter.add(hint);
     }
 
     public void setFiltered(boolean value) {
+        if (isBusy())
+            return;
         resetFilterCache();
         this.isFiltered = value;
         filterHints();
         repaintAll();
+        speculateNextHint();
     }
 
     public boolean isFiltered() {
@@ -191,8 +154,10 @@ public class SudokuExplainer {
     }
 
     public void cellValueTyped(Cell cell, int value) {
+        if (isBusy())
+            return;
         if (cell.getCellType() != CellType.Given) {
-            pushGrid();
+            beginAction();
             int oldValue = cell.getValue();
             cell.setValue(value);
             if ((value == 0) || (oldValue != 0)) {
@@ -200,24 +165,31 @@ public class SudokuExplainer {
             } else {
                 this.solver.cancelPotentialValues();
             }
-            boolean needRepaintHints = this.filteredHints != null;
-            clearHints0();
-            this.selectedHints.clear();
-            if (needRepaintHints) {
-                repaintHintsTree();
-                repaintHints();
+            this.journal.end(this.grid);
+            if (this.filteredHints != null || !this.selectedHints.isEmpty()) {
+                clearHints0();
+            } else {
+                // No hint is shown: the panel only repaints the changed cells
+                resetFilterCache();
+                this.panel.clearFocus();
+                this.frame.setExplanations("");
             }
+            speculateNextHint();
         }
     }
 
     public void candidateTyped(Cell cell, int candidate) {
-        pushGrid();
+        if (isBusy())
+            return;
+        beginAction();
         if (cell.hasPotentialValue(candidate)) {
             cell.removePotentialValue(candidate);
         } else {
             cell.addPotentialValue(candidate);
         }
         this.solver.cancelPotentialValues();
+        this.journal.end(this.grid);
+        speculateNextHint();
     }
 
     public void hintsSelected(Collection<HintNode> nodes) {
@@ -238,6 +210,13 @@ public class SudokuExplainer {
     }
 
     public void clearGrid() {
+        beginAction();
+        clearGrid0();
+        this.journal.end(this.grid);
+    }
+
+    private void clearGrid0() {
+        cancel();
         this.grid = new Grid();
         this.solver = new Solver(this.grid);
         this.solver.rebuildPotentialValues();
@@ -247,6 +226,8 @@ public class SudokuExplainer {
     }
 
     public void setGrid(Grid grid) {
+        beginAction();
+        cancel();
         this.grid = grid;
         this.solver = new Solver(grid);
         this.solver.rebuildPotentialValues();
@@ -254,6 +235,7 @@ public class SudokuExplainer {
         this.panel.clearSelection();
         clearHints();
         this.frame.setExplanations("");
+        this.journal.end(this.grid);
     }
 
     public Grid getGrid() {
@@ -261,12 +243,15 @@ public class SudokuExplainer {
     }
 
     public void clearHints() {
+        // The hints of a running task would be added to the cleared hints
+        cancel();
         this.unfilteredHints = null;
         resetFilterCache();
         filterHints();
         this.selectedHints.clear();
         this.panel.clearSelection();
         repaintAll();
+        speculateNextHint();
     }
 
     public void clearHints0() {
@@ -279,7 +264,101 @@ public class SudokuExplainer {
     }
 
     public void rebuildSolver() {
+        cancel();
         this.solver = new Solver(this.grid);
+        speculateNextHint();
+    }
+
+    /**
+     * Run a computation of the solver in the background.
+     * If a task is already running, it is cancelled, and the computation
+     * starts once it has stopped.
+     * @param computation the computation, run on a worker thread
+     * @param resultHandler the handler of the result, called on the event dispatch thread
+     */
+    private <T> void execute(Callable<T> computation, Consumer<T> resultHandler) {
+        execute(computation, resultHandler, this::displayError);
+    }
+
+    private <T> void execute(Callable<T> computation, Consumer<T> resultHandler,
+            Consumer<Throwable> errorHandler) {
+        execute(this.solver, hints -> computation.call(), null, resultHandler, errorHandler);
+    }
+
+    /**
+     * Run a computation of the solver in the background, displaying
+     * its hints while they are found.
+     * @param solver the solver used by the computation
+     * @param computation the computation, run on a worker thread
+     * @param hintsHandler the handler of the hints found so far, called
+     * on the event dispatch thread, or <tt>null</tt>
+     * @param resultHandler the handler of the result, called on the event dispatch thread
+     * @param errorHandler the handler of the errors, called on the event dispatch thread
+     */
+    private <T> void execute(Solver solver, SolverTask.Computation<T> computation,
+            Consumer<List<Hint>> hintsHandler, Consumer<T> resultHandler,
+            Consumer<Throwable> errorHandler) {
+        SolverTask<T> newTask = new SolverTask<>(this, this.frame, solver, computation,
+                hintsHandler, resultHandler, errorHandler);
+        if (this.task == null) {
+            startTask(newTask);
+        } else {
+            this.task.stop();
+            this.nextTask = newTask;
+        }
+    }
+
+    private void startTask(SolverTask<?> task) {
+        // Only a task waiting for the speculative search may run along with it
+        if (this.speculation != null && task.getSolver() != this.speculation.getSolver()) {
+            this.speculation.cancel();
+            this.speculation = null;
+        }
+        this.task = task;
+        this.frame.setSolving(true);
+        task.execute();
+    }
+
+    /**
+     * Called by a task on the event dispatch thread when it has completed.
+     */
+    void taskDone(SolverTask<?> task) {
+        if (task == this.task) {
+            this.task = null;
+            if (this.nextTask != null) {
+                SolverTask<?> next = this.nextTask;
+                this.nextTask = null;
+                startTask(next);
+            } else {
+                this.frame.setSolving(false);
+                speculateNextHint();
+            }
+        }
+    }
+
+    /**
+     * Get whether the solver is running in the background.
+     * The grid can not be modified until it has completed.
+     * @return whether a solver task is running
+     */
+    public boolean isBusy() {
+        return this.task != null;
+    }
+
+    /**
+     * Cancel the solver task running in the background, if any.
+     * Its result is discarded.
+     */
+    public void cancel() {
+        this.nextTask = null;
+        if (this.task != null) {
+            // A speculative search the task is waiting for is not wanted anymore
+            if (this.speculation != null && this.task.getSolver() == this.speculation.getSolver()) {
+                this.speculation.cancel();
+                this.speculation = null;
+            }
+            this.task.stop();
+        }
     }
 
     private void displayError(Throwable ex) {
@@ -295,6 +374,8 @@ public class SudokuExplainer {
     }
 
     public boolean checkValidity() {
+        if (isBusy())
+            return false;
         this.selectedHints.clear();
         this.unfilteredHints = new ArrayList();
         Hint hint = this.solver.checkValidity();
@@ -308,80 +389,203 @@ public class SudokuExplainer {
     }
 
     public void resetPotentials() {
+        if (isBusy())
+            return;
         this.solver.rebuildPotentialValues();
         clearHints();
     }
 
-    private Hint getNextHintImpl() {
-        if (this.unfilteredHints == null) {
-            this.unfilteredHints = new ArrayList();
-            filterHints();
-        }
+    /**
+     * Search for the next hint that is not filtered out.
+     * Called on the worker thread: the hints found on the way are added
+     * to the given list, which is not shared with the user interface.
+     */
+    private Hint searchNextHint(Solver solver, final List<Hint> hints,
+            final Predicate<Hint> isWorth, Asker asker) {
         final List<Hint> buffer = new ArrayList();
         final StrongReference<Hint> newHint = new StrongReference();
-        this.solver.gatherHints(this.unfilteredHints, buffer, hint -> {
+        solver.gatherHints(hints, buffer, hint -> {
             if (!buffer.contains(hint)) {
                 buffer.add(hint);
-                boolean isNew = buffer.size() > SudokuExplainer.this.unfilteredHints.size();
+                boolean isNew = buffer.size() > hints.size();
                 if (isNew) {
-                    SudokuExplainer.this.unfilteredHints.add(hint);
-                    if (SudokuExplainer.this.isWorth(hint)) {
+                    hints.add(hint);
+                    if (isWorth.test(hint)) {
                         newHint.setValue(hint);
                         throw new InterruptedException();
                     }
                 }
             }
-        }, this.frame);
-        this.selectedHints.clear();
-        Hint hint = null;
-        if (newHint.isValueSet()) {
-            hint = newHint.getValue();
+        }, asker);
+        return newHint.getValue();
+    }
+
+    /**
+     * Get whether no hint has been searched for since the last modification
+     * of the grid, in which case the next hint can be searched for in advance.
+     */
+    private boolean hasNoHints() {
+        return (this.unfilteredHints == null || this.unfilteredHints.isEmpty())
+                && this.filter.isEmpty();
+    }
+
+    /**
+     * Start searching the next hint in the background, on a copy of the grid,
+     * unless such a search is already running for the current grid.
+     * Called after every modification of the grid.
+     */
+    private void speculateNextHint() {
+        if (this.speculation != null) {
+            if (this.speculation.isValidFor(this.grid, this.solver, this.isFiltered)) {
+                return;
+            }
+            this.speculation.cancel();
+            this.speculation = null;
+        }
+        if (isBusy() || !hasNoHints()) {
+            return;
+        }
+        final boolean isFiltered = this.isFiltered;
+        final HintFilter noHints = new HintFilter();
+        this.speculation = new NextHintSpeculation(this.grid, this.solver, isFiltered,
+                (solver, hints, asker) -> searchNextHint(solver, hints,
+                        hint -> !isFiltered || noHints.isWorth(hint), asker));
+    }
+
+    private void getNextHint(Consumer<Hint> hintHandler) {
+        final NextHintSpeculation speculation = this.speculation;
+        if (speculation != null && hasNoHints()
+                && speculation.isValidFor(this.grid, this.solver, this.isFiltered)) {
+            // Wait for the search running in advance, and adopt its copy of the grid
+            execute(speculation.getSolver(), hints -> speculation.get(), null, hint -> {
+                if (speculation.isConclusive()
+                        && speculation.isValidFor(this.grid, this.solver, this.isFiltered)) {
+                    this.speculation = null;
+                    this.grid = speculation.getGrid();
+                    this.solver = speculation.getSolver();
+                    this.panel.replaceSudokuGrid(this.grid);
+                    this.unfilteredHints = new ArrayList<>(speculation.getHints());
+                    this.filteredHints = new ArrayList<>();
+                    this.selectedHints.clear();
+                    hintHandler.accept(hint);
+                } else {
+                    searchNextHint(hintHandler);
+                }
+            }, this::displayError);
+        } else {
+            searchNextHint(hintHandler);
         }
-        return hint;
+    }
+
+    private void searchNextHint(Consumer<Hint> hintHandler) {
+        if (this.unfilteredHints == null) {
+            this.unfilteredHints = new ArrayList<>();
+            filterHints();
+        }
+        final Solver solver = this.solver;
+        final List<Hint> hints = new ArrayList<>(this.unfilteredHints);
+        execute(() -> searchNextHint(solver, hints, this::isWorth, this.frame), hint -> {
+            this.unfilteredHints = hints;
+            this.selectedHints.clear();
+            hintHandler.accept(hint);
+        });
     }
 
     public void getNextHint() {
-        try {
-            Hint hint = getNextHintImpl();
+        getNextHint(hint -> {
             if (hint != null) {
                 addFilteredHintAndUpdateFilter(hint);
                 this.selectedHints.add(hint);
             }
             repaintAll();
-        } catch (Throwable ex) {
-            displayError(ex);
-        }
+        });
     }
 
+    /**
+     * Search all the hints in the background. The hints tree is filled
+     * while they are found, and the first one is selected as soon as it is found.
+     */
     public void getAllHints() {
-        try {
-            this.unfilteredHints = this.solver.getAllHints(this.frame);
-            this.selectedHints.clear();
-            resetFilterCache();
-            filterHints();
-            if (!this.filteredHints.isEmpty()) {
-                this.selectedHints.add(this.filteredHints.get(0));
+        this.unfilteredHints = new ArrayList();
+        this.selectedHints.clear();
+        resetFilterCache();
+        filterHints();
+        repaintAll();
+        final Solver solver = this.solver;
+        execute(solver, found -> solver.getAllHints(this.frame, found), this::hintsFound, hints -> {
+            // Add the hints whose batch was not processed before completion
+            if (this.unfilteredHints == null)
+                return; // The hints were cleared meanwhile
+            int count = this.unfilteredHints.size();
+            if (hints.size() > count) {
+                hintsFound(hints.subList(count, hints.size()));
+            }
+        }, this::displayError);
+    }
+
+    /**
+     * Add hints found by the solver running in the background
+     * to the hints, and to the hints tree if they are not filtered out.
+     */
+    private void hintsFound(List<Hint> hints) {
+        if (this.unfilteredHints == null || this.filteredHints == null)
+            return; // The hints were cleared meanwhile
+        List<Hint> newHints = new ArrayList();
+        for (Hint hint : hints) {
+            this.unfilteredHints.add(hint);
+            if (!this.isFiltered) {
+                this.filteredHints.add(hint);
+                newHints.add(hint);
+            } else if (isWorth(hint)) {
+                addFilteredHintAndUpdateFilter(hint);
+                newHints.add(hint);
             }
-            repaintAll();
-        } catch (Throwable ex) {
-            displayError(ex);
+        }
+        Hint selected = null;
+        if (this.selectedHints.isEmpty() && !newHints.isEmpty()) {
+            selected = newHints.get(0);
+            this.selectedHints.add(selected);
+        }
+        this.frame.addHints(this.hintsTreeBuilder, newHints, selected,
+                this.unfilteredHints.size() > 1);
+        if (selected != null) {
+            repaintHints();
         }
     }
 
     public void applySelectedHints() {
-        pushGrid();
+        if (isBusy())
+            return;
+        beginAction();
         for (Hint hint : this.selectedHints) {
             hint.apply();
         }
+        this.journal.end(this.grid);
         clearHints();
         repaintAll();
     }
 
     public void undoStep() {
-        popGrid();
+        if (isBusy())
+            return;
+        if (this.journal.undo(this.grid)) {
+            clearHints();
+            repaintAll();
+        }
+    }
+
+    public void redoStep() {
+        if (isBusy())
+            return;
+        if (this.journal.redo(this.grid)) {
+            clearHints();
+            repaintAll();
+        }
     }
 
     public void applySelectedHintsAndContinue() {
+        if (isBusy())
+            return;
         applySelectedHints();
         getNextHint();
     }
@@ -389,10 +593,12 @@ public class SudokuExplainer {
     private void repaintHintsTree() {
         if (this.filteredHints == null) {
             List<Hint> noHints = Collections.emptyList();
-            HintNode root = new HintsTreeBuilder().buildHintsTree(noHints);
+            this.hintsTreeBuilder = new HintsTreeBuilder();
+            HintNode root = this.hintsTreeBuilder.buildHintsTree(noHints);
             this.frame.setHintsTree(root, null, false);
         } else {
-            HintNode root = new HintsTreeBuilder().buildHintsTree(this.filteredHints);
+            this.hintsTreeBuilder = new HintsTreeBuilder();
+            HintNode root = this.hintsTreeBuilder.buildHintsTree(this.filteredHints);
             HintNode selected = null;
             if ((root != null) && (this.selectedHints.size() == 1)) {
                 selected = root.getNodeFor(this.selectedHints.get(0));
@@ -404,32 +610,36 @@ public class SudokuExplainer {
     public void pasteGrid() {
         Grid copy = new Grid();
         this.grid.copyTo(copy);
-        clearGrid();
+        beginAction();
+        clearGrid0();
         ErrorMessage message = SudokuIO.loadFromClipboard(this.grid);
         if ((message == null) || (!message.isFatal())) {
             this.solver.rebuildPotentialValues();
         } else {
             copy.copyTo(this.grid);
         }
+        this.journal.end(this.grid);
+        speculateNextHint();
         if (message != null) {
             JOptionPane.showMessageDialog(this.frame, message.toString(), "Paste",
                     (message.isFatal() ? JOptionPane.ERROR_MESSAGE : JOptionPane.WARNING_MESSAGE));
         }
     }
 
-    public void pushGrid() {
-        Grid copy = new Grid();
-        this.grid.copyTo(copy);
-        this.gridStack.push(copy);
-    }
-
-    private void popGrid() {
-        if (!this.gridStack.isEmpty()) {
-            Grid prev = this.gridStack.pop();
-            prev.copyTo(this.grid);
-            this.solver.rebuildPotentialValues();
-            clearHints();
-            repaintAll();
+    /**
+     * Start recording a modification of the grid, so that it can be undone.
+     * The modification ends with <tt>journal.end(grid)</tt>.
+     * <p>
+     * While the solver runs in the background, the grid may be temporarily
+     * modified: the state before the modification is then taken from the copy
+     * of the grid painted by the frozen panel.
+     */
+    private void beginAction() {
+        this.journal.setChangeLimit(Settings.getInstance().getUndoLimit());
+        if (isBusy()) {
+            this.journal.begin(this.panel.getPaintedGrid());
+        } else {
+            this.journal.begin(this.grid);
         }
     }
 
@@ -440,13 +650,16 @@ public class SudokuExplainer {
     public void loadGrid(File file) {
         Grid copy = new Grid();
         this.grid.copyTo(copy);
-        clearGrid();
+        beginAction();
+        clearGrid0();
         ErrorMessage message = SudokuIO.loadFromFile(this.grid, file);
         if ((message == null) || (!message.isFatal())) {
             this.solver.rebuildPotentialValues();
         } else {
             copy.copyTo(this.grid);
         }
+        this.journal.end(this.grid);
+        speculateNextHint();
         if (message != null) {
             JOptionPane.showMessageDialog(this.frame, message.toString(), "Paste",
                     (message.isFatal() ? JOptionPane.ERROR_MESSAGE : JOptionPane.WARNING_MESSAGE));
@@ -488,35 +701,37 @@ public class SudokuExplainer {
 
     public void solve() {
         clearHints();
-        this.unfilteredHints = new ArrayList();
-        Hint hint = this.solver.bruteForceSolve();
-        if (hint != null) {
-            this.unfilteredHints.add(hint);
-            this.selectedHints.add(hint);
-        }
-        filterHints();
-        repaintAll();
+        final Solver solver = this.solver;
+        execute(solver::bruteForceSolve, this::showHint);
     }
 
-    public Hint analyse() {
-        try {
-            clearHints();
-            this.unfilteredHints = new ArrayList();
-            Hint hint = this.solver.analyse(this.frame);
-            if (hint != null) {
-                this.unfilteredHints.add(hint);
-                this.selectedHints.add(hint);
+    public void analyse() {
+        analyse(null);
+    }
+
+    /**
+     * Analyse the Sudoku in the background, and show the analysis
+     * @param analysisHandler if not <tt>null</tt>, called with the analysis
+     * once it is shown
+     */
+    public void analyse(Consumer<Hint> analysisHandler) {
+        clearHints();
+        final Solver solver = this.solver;
+        execute(() -> solver.analyse(this.frame), hint -> {
+            showHint(hint);
+            if (analysisHandler != null)
+                analysisHandler.accept(hint);
+        }, ex -> {
+            if (ex instanceof UnsupportedOperationException) {
+                repaintAll();
+                JOptionPane.showMessageDialog(this.frame,
+                        "The Sudoku Explainer failed to solve this Sudoku\n" +
+                                "using the solving techniques that are currently enabled.",
+                        "Analysis", JOptionPane.ERROR_MESSAGE);
+            } else {
+                displayError(ex);
             }
-            filterHints();
-            return hint;
-        } catch (UnsupportedOperationException ex) {
-            throw ex;
-        } catch (Throwable ex) {
-            displayError(ex);
-            return null;
-        } finally {
-            repaintAll();
-        }
+        });
     }
 
     public void showHint(Hint hint) {
@@ -532,7 +747,10 @@ public class SudokuExplainer {
 
     public void getClue(boolean isBig) {
         clearHints();
-        Hint hint = getNextHintImpl();
+        getNextHint(hint -> showClue(hint, isBig));
+    }
+
+    private void showClue(Hint hint, boolean isBig) {
         if (hint != null) {
             if ((hint instanceof Rule)) {
                 Rule rule = (Rule)hint;
@@ -3,10 +3,12 @@ package SudokuExplainer.gui;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.security.*;
 import java.text.DecimalFormat;
 import java.util.*;
+import java.util.List;
 import javax.swing.*;
 import javax.swing.filechooser.FileFilter;
 import javax.swing.tree.*;
@@ -27,6 +29,13 @@ public class SudokuFrame extends JFrame implements Asker {
     private static final long serialVersionUID = 8247189707924329043L;
     private SudokuExplainer engine;
     private Hint currentHint = null;
+    /*
+     * The hint whose explanation is displayed, and the notation it uses
+     */
+    private Hint explainedHint = null;
+    private boolean isExplainedRCNotation = false;
+    private boolean isApplyEnabled = false;
+    private boolean isSolving = false;
     private int viewCount = 1;
     private int viewNum = 0;
     private GenerateDialog generateDialog = null;
@@ -72,6 +81,7 @@ public class SudokuFrame extends JFrame implements Asker {
     private JMenuItem mitCheckValidity = null;
     private JMenuItem mitAnalyse = null;
     private JMenuItem mitUndoStep = null;
+    private JMenuItem mitRedoStep = null;
     private JMenuItem mitSolveStep = null;
     private JMenuItem mitGetNextHint = null;
     private JMenuItem mitApplyHint = null;
@@ -99,6 +109,9 @@ public class SudokuFrame extends JFrame implements Asker {
     private JPanel pnlEnabledTechniques = null;
     private JLabel lblEnabledTechniques = null;
     private JMenuItem mitSaveGridPicture = null;
+    private JPanel progressPanel = null;
+    private JProgressBar progressBar = null;
+    private JButton btnCancel = null;
 
     public SudokuFrame() {
         initialize();
@@ -140,6 +153,30 @@ public class SudokuFrame extends JFrame implements Asker {
         getHintsTree().setEnabled(true);
     }
 
+    /**
+     * Add hints to the displayed hints tree, without rebuilding it.
+     * @param builder the builder of the displayed tree
+     * @param hints the hints to add
+     * @param selected the hint to select, or <tt>null</tt> to keep the selection
+     * @param isFilterEnabled whether the hints can be filtered
+     */
+    void addHints(HintsTreeBuilder builder, List<Hint> hints, Hint selected, boolean isFilterEnabled) {
+        getHintsTree().setEnabled(false);
+        DefaultTreeModel model = (DefaultTreeModel)getHintsTree().getModel();
+        HintNode root = builder.addHints(hints, model);
+        for (int i = 0; i < root.getChildCount(); i++) {
+            HintNode child = (HintNode)root.getChildAt(i);
+            getHintsTree().expandPath(new TreePath(child.getPath()));
+        }
+        this.mitFilter.setEnabled(isFilterEnabled);
+        this.chkFilter.setEnabled(isFilterEnabled && !this.isSolving);
+        HintNode node = root.getNodeFor(selected);
+        if (node != null) {
+            getHintsTree().setSelectionPath(new TreePath(node.getPath()));
+        }
+        getHintsTree().setEnabled(true);
+    }
+
     private void repaintHint() {
         Set<Cell> noCells = Collections.emptySet();
         Map<Cell, BitSet> noMap = Collections.emptyMap();
@@ -156,7 +193,7 @@ public class SudokuFrame extends JFrame implements Asker {
                 values.set(dHint.getValue());
                 this.sudokuPanel.setGreenPotentials(Collections.singletonMap(
                         dHint.getCell(), values));
-                getSudokuPanel().setLinks(null);
+                getSudokuPanel().setLinks(null, 0);
             } else if ((this.currentHint instanceof IndirectHint)) {
                 IndirectHint indirectHint = (IndirectHint)this.currentHint;
                 this.sudokuPanel.setGreenPotentials(indirectHint.getGreenPotentials(this.viewNum));
@@ -169,7 +206,7 @@ public class SudokuFrame extends JFrame implements Asker {
                 if ((indirectHint instanceof WarningHint)) {
                     this.sudokuPanel.setRedCells(((WarningHint)indirectHint).getRedCells());
                 }
-                getSudokuPanel().setLinks(indirectHint.getLinks(this.viewNum));
+                getSudokuPanel().setLinks(indirectHint, this.viewNum);
             }
             getSudokuPanel().setBlueRegions(this.currentHint.getRegions());
         }
@@ -178,8 +215,9 @@ public class SudokuFrame extends JFrame implements Asker {
 
     public void setCurrentHint(Hint hint, boolean isApplyEnabled) {
         this.currentHint = hint;
-        this.btnApplyHint.setEnabled(isApplyEnabled);
-        this.mitApplyHint.setEnabled(isApplyEnabled);
+        this.isApplyEnabled = isApplyEnabled;
+        this.btnApplyHint.setEnabled(isApplyEnabled && !isSolving);
+        this.mitApplyHint.setEnabled(isApplyEnabled && !isSolving);
         if (hint != null) {
             if ((hint instanceof IndirectHint)) {
                 this.viewCount = ((IndirectHint)hint).getViewCount();
@@ -192,7 +230,12 @@ public class SudokuFrame extends JFrame implements Asker {
             }
             repaintViews();
 
-            setExplanations(hint.toHtml());
+            boolean isRCNotation = Settings.getInstance().isRCNotation();
+            if (hint != this.explainedHint || isRCNotation != this.isExplainedRCNotation) {
+                setExplanations(hint.toHtml());
+                this.explainedHint = hint;
+                this.isExplainedRCNotation = isRCNotation;
+            }
             if ((hint instanceof Rule)) {
                 Rule rule = (Rule)hint;
                 DecimalFormat format = new DecimalFormat("#0.0");
@@ -204,8 +247,9 @@ public class SudokuFrame extends JFrame implements Asker {
             }
         } else {
             getHintDetailArea().setText(null);
+            this.explainedHint = null;
             getSudokuPanel().setBlueRegions();
-            getSudokuPanel().setLinks(null);
+            getSudokuPanel().setLinks(null, 0);
             this.viewCount = 1;
             this.viewNum = 0;
             repaintViews();
@@ -248,6 +292,7 @@ public class SudokuFrame extends JFrame implements Asker {
     }
 
     public void setExplanations(String htmlText) {
+        this.explainedHint = null;
         getHintDetailArea().setText(htmlText);
         getHintDetailArea().setCaretPosition(0);
         this.lblRating.setText("-");
@@ -268,10 +313,67 @@ public class SudokuFrame extends JFrame implements Asker {
     }
 
     public boolean ask(String message) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            // Asked by the solver running in the background
+            final boolean[] answer = new boolean[1];
+            try {
+                SwingUtilities.invokeAndWait(() -> answer[0] = ask(message));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt(); // Cancelled
+            } catch (InvocationTargetException ex) {
+                ex.printStackTrace();
+            }
+            return answer[0];
+        }
         return JOptionPane.showConfirmDialog(this, message, getTitle(),
                 JOptionPane.YES_NO_OPTION) == 0;
     }
 
+    /**
+     * Enable or disable the actions while the solver runs in the background.
+     * Only the actions that do not modify the grid remain enabled, and the
+     * progress of the solver is displayed with a button to cancel it.
+     * @param isSolving whether the solver is running
+     */
+    void setSolving(boolean isSolving) {
+        this.isSolving = isSolving;
+        getSudokuPanel().setFrozen(isSolving);
+        getBtnCheckValidity().setEnabled(!isSolving);
+        getBtnGetNextHint().setEnabled(!isSolving);
+        getBtnApplyHintAndGet().setEnabled(!isSolving);
+        getBtnGetAllHints().setEnabled(!isSolving);
+        getBtnUndoStep().setEnabled(!isSolving);
+        getBtnApplyHint().setEnabled(this.isApplyEnabled && !isSolving);
+        getMitApplyHint().setEnabled(this.isApplyEnabled && !isSolving);
+        getChkFilter().setEnabled(getMitFilter().isEnabled() && !isSolving);
+        getFileMenu().setEnabled(!isSolving);
+        getEditMenu().setEnabled(!isSolving);
+        getToolMenu().setEnabled(!isSolving);
+        getProgressBar().setValue(0);
+        getProgressBar().setString("");
+        getProgressPanel().setVisible(isSolving);
+        /*
+         * The solver is started by actions wrapped by AutoBusy, which restores
+         * the cursor once they return: set the cursor after that.
+         */
+        SwingUtilities.invokeLater(() -> {
+            if (this.isSolving == isSolving) {
+                AutoBusy.setBusy(getSudokuPanel(), isSolving);
+                AutoBusy.setBusy(getButtonsPane(), isSolving);
+            }
+        });
+    }
+
+    /**
+     * Display the progress of the solver running in the background
+     * @param task a short description of what the solver is doing
+     * @param progress the fraction of the computation that is done
+     */
+    void setProgress(String task, double progress) {
+        getProgressBar().setValue((int)Math.round(progress * getProgressBar().getMaximum()));
+        getProgressBar().setString(task);
+    }
+
     private class HintsTreeCellRenderer implements TreeCellRenderer {
         private final DefaultTreeCellRenderer target = new DefaultTreeCellRenderer();
 
@@ -585,12 +687,43 @@ public class SudokuFrame extends JFrame implements Asker {
                     0,
                     0, new Font(
                             "Dialog", Font.BOLD, 12), null));
+            this.hintsTreePanel.add(getProgressPanel(), "North");
             this.hintsTreePanel.add(getHintsTreeScrollPane(), "Center");
             this.hintsTreePanel.add(getHintsSouthPanel(), "South");
         }
         return this.hintsTreePanel;
     }
 
+    private JPanel getProgressPanel() {
+        if (this.progressPanel == null) {
+            this.progressPanel = new JPanel();
+            this.progressPanel.setLayout(new BorderLayout(4, 0));
+            this.progressPanel.add(getProgressBar(), "Center");
+            this.progressPanel.add(getBtnCancel(), "East");
+            this.progressPanel.setVisible(false);
+        }
+        return this.progressPanel;
+    }
+
+    private JProgressBar getProgressBar() {
+        if (this.progressBar == null) {
+            this.progressBar = new JProgressBar(0, 1000);
+            this.progressBar.setStringPainted(true);
+            this.progressBar.setToolTipText("Solving technique being searched");
+        }
+        return this.progressBar;
+    }
+
+    private JButton getBtnCancel() {
+        if (this.btnCancel == null) {
+            this.btnCancel = new JButton();
+            this.btnCancel.setText("Cancel");
+            this.btnCancel.setToolTipText("Stop searching for hints");
+            this.btnCancel.addActionListener(e -> SudokuFrame.this.engine.cancel());
+        }
+        return this.btnCancel;
+    }
+
     private JCheckBox getChkFilter() {
         if (this.chkFilter == null) {
             this.chkFilter = new JCheckBox();
@@ -965,6 +1098,8 @@ public class SudokuFrame extends JFrame implements Asker {
             getMitGetAllHints().setAccelerator(KeyStroke.getKeyStroke(116, 0));
             this.toolMenu.add(getMitUndoStep());
             getMitUndoStep().setAccelerator(KeyStroke.getKeyStroke(90, InputEvent.CTRL_MASK));
+            this.toolMenu.add(getMitRedoStep());
+            getMitRedoStep().setAccelerator(KeyStroke.getKeyStroke(89, InputEvent.CTRL_DOWN_MASK));
             this.toolMenu.addSeparator();
             this.toolMenu.add(getMitGetSmallClue());
             getMitGetSmallClue().setAccelerator(KeyStroke.getKeyStroke(117, 0));
@@ -1003,17 +1138,7 @@ public class SudokuFrame extends JFrame implements Asker {
             this.mitAnalyse.setMnemonic(89);
             this.mitAnalyse.setToolTipText("List the rules required to solve the Sudoku and get its average difficulty");
 
-            this.mitAnalyse.addActionListener(e -> {
-                try {
-                    SudokuFrame.this.engine.analyse();
-                } catch (UnsupportedOperationException ex) {
-                    JOptionPane.showMessageDialog(SudokuFrame.this,
-                            "The Sudoku Explainer failed to solve this Sudoku\n" +
-                                    "using the solving techniques that are currently enabled.",
-
-                            "Analysis", JOptionPane.ERROR_MESSAGE);
-                }
-            });
+            this.mitAnalyse.addActionListener(e -> SudokuFrame.this.engine.analyse());
         }
         return this.mitAnalyse;
     }
@@ -1029,6 +1154,17 @@ public class SudokuFrame extends JFrame implements Asker {
         return this.mitUndoStep;
     }
 
+    private JMenuItem getMitRedoStep() {
+        if (this.mitRedoStep == null) {
+            this.mitRedoStep = new JMenuItem();
+            this.mitRedoStep.setText("Redo step");
+            this.mitRedoStep.setMnemonic(69);
+            this.mitRedoStep.setToolTipText("Redo the last undone step or value selection");
+            this.mitRedoStep.addActionListener(e -> SudokuFrame.this.engine.redoStep());
+        }
+        return this.mitRedoStep;
+    }
+
     private JMenuItem getMitSolveStep() {
         if (this.mitSolveStep == null) {
             this.mitSolveStep = new JMenuItem();
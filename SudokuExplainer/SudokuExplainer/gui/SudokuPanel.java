@@ -2,11 +2,13 @@ package SudokuExplainer.gui;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.font.FontRenderContext;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.util.*;
 import javax.swing.*;
 import SudokuExplainer.*;
+import SudokuExplainer.solver.*;
 import SudokuExplainer.units.*;
 
 /**
@@ -36,6 +38,7 @@ public class SudokuPanel extends JPanel {
     private int FONT_SIZE_LEGEND = 24;
 
     private Grid grid;
+    private Grid frozenGrid = null;
     private Cell focusedCell = null;
     private Cell selectedCell = null;
     private int focusedCandidate = 0;
@@ -45,7 +48,9 @@ public class SudokuPanel extends JPanel {
     private Collection<Cell> greenCells;
     private Collection<Cell> redCells;
     private Grid.Region[] blueRegions;
-    private Collection<Link> links;
+    private LinkGeometry links;
+    private IndirectHint linksHint;
+    private final Map<Integer, LinkGeometry> linkGeometries = new HashMap<>();
 
     private SudokuFrame parent;
     private SudokuExplainer engine;
@@ -54,6 +59,10 @@ public class SudokuPanel extends JPanel {
     private Font bigFont;
     private Font legendFont;
 
+    private final Map<Font, Map<String, Rectangle2D>> stringBounds = new HashMap<>();
+    private FontRenderContext stringBoundsContext;
+    private final int[] paintedStates = new int[81];
+
 
     public SudokuPanel(SudokuFrame parent) {
         super();
@@ -65,6 +74,7 @@ public class SudokuPanel extends JPanel {
         smallFont = new Font(FONT_NAME, Font.PLAIN, FONT_SIZE_SMALL);
         bigFont = new Font(FONT_NAME, Font.PLAIN, FONT_SIZE_BIG);
         legendFont = new Font(FONT_NAME, Font.PLAIN, FONT_SIZE_LEGEND);
+        Arrays.fill(paintedStates, -1);
     }
 
     private void rescale() {
@@ -105,11 +115,11 @@ public class SudokuPanel extends JPanel {
                         if (target.getValue() == 0) {
                             // Set the cell's value
                             engine.cellValueTyped(target, value);
-                            repaint();
+                            repaintChangedCells();
                         } else {
                             // Clear the cell's value
                             engine.cellValueTyped(target, 0);
-                            repaint();
+                            repaintChangedCells();
                         }
                     }
                 } else {
@@ -166,7 +176,7 @@ public class SudokuPanel extends JPanel {
                 } else if (code == KeyEvent.VK_DELETE || code == KeyEvent.VK_BACK_SPACE) {
                     if (selectedCell != null) {
                         engine.cellValueTyped(selectedCell, 0);
-                        repaint();
+                        repaintChangedCells();
                     }
                 } else if (code >= KeyEvent.VK_1 && code <= KeyEvent.VK_9) {
                     if ((e.getModifiers() & InputEvent.CTRL_MASK) != 0) {
@@ -190,12 +200,11 @@ public class SudokuPanel extends JPanel {
                     if (ch >= '1' && ch <= '9') {
                         int value = ch - '0';
                         engine.cellValueTyped(selectedCell, value);
-                        repaint();
+                        repaintChangedCells();
                         isProcessed = true;
                     } else if (ch == ' ' || ch == '0') {
                         engine.cellValueTyped(selectedCell, 0);
-                        selectedCell.setValue(0);
-                        repaint();
+                        repaintChangedCells();
                         isProcessed = true;
                     } else if (ch == '\r' || ch == '\n') {
                         setSelectedCell(null);
@@ -253,6 +262,60 @@ public class SudokuPanel extends JPanel {
     public void setSudokuGrid(Grid sudokuGrid) {
         this.grid = sudokuGrid;
         this.selectedCell = sudokuGrid.getCell(4, 4);
+        if (frozenGrid != null)
+            sudokuGrid.copyTo(frozenGrid);
+        clearLinkGeometries();
+    }
+
+    /**
+     * Replace the grid by an identical copy of it, keeping
+     * the selected and focused cells.
+     * @param sudokuGrid the copy of the grid
+     */
+    public void replaceSudokuGrid(Grid sudokuGrid) {
+        if (selectedCell != null)
+            selectedCell = sudokuGrid.getCell(selectedCell.getX(), selectedCell.getY());
+        if (focusedCell != null)
+            focusedCell = sudokuGrid.getCell(focusedCell.getX(), focusedCell.getY());
+        this.grid = sudokuGrid;
+        if (frozenGrid != null)
+            sudokuGrid.copyTo(frozenGrid);
+        clearLinkGeometries();
+    }
+
+    /**
+     * Freeze the displayed values and potential values.
+     * <p>
+     * While the solver runs in the background, it may temporarily modify the grid.
+     * The values and potential values are then painted from a copy of the grid,
+     * taken when the panel is frozen.
+     * @param isFrozen whether to freeze the displayed values
+     */
+    public void setFrozen(boolean isFrozen) {
+        if (isFrozen) {
+            frozenGrid = new Grid();
+            grid.copyTo(frozenGrid);
+        } else {
+            frozenGrid = null;
+        }
+        repaint();
+    }
+
+    /**
+     * Get the grid whose values and potential values are painted: the copy taken
+     * when the panel was frozen, or the grid itself if the panel is not frozen
+     */
+    Grid getPaintedGrid() {
+        return frozenGrid != null ? frozenGrid : grid;
+    }
+
+    /**
+     * Get the cell whose value and potential values to paint
+     */
+    private Cell getPaintedCell(int x, int y) {
+        if (frozenGrid != null)
+            return frozenGrid.getCell(x, y);
+        return grid.getCell(x, y);
     }
 
     public Collection<Cell> getGreenCells() {
@@ -299,8 +362,39 @@ public class SudokuPanel extends JPanel {
         this.blueRegions = regions;
     }
 
-    public void setLinks(Collection<Link> links) {
-        this.links = links;
+    /**
+     * Set the hint whose links to paint.
+     * <p>
+     * The lines and arrows of the links of the views of the hint are kept
+     * until another hint is set, so that they are only computed once per view.
+     * @param hint the hint, or <tt>null</tt> for no links
+     * @param viewNum the view of the hint
+     */
+    public void setLinks(IndirectHint hint, int viewNum) {
+        if (hint != linksHint) {
+            clearLinkGeometries();
+            linksHint = hint;
+        }
+        if (hint == null)
+            return;
+        LinkGeometry geometry = linkGeometries.get(viewNum);
+        if (geometry == null) {
+            Collection<Link> hintLinks = hint.getLinks(viewNum);
+            if (hintLinks != null) {
+                geometry = new LinkGeometry(hintLinks);
+                linkGeometries.put(viewNum, geometry);
+            }
+        }
+        this.links = geometry;
+    }
+
+    /**
+     * Forget the links of the current hint, which refer to the cells of its grid
+     */
+    private void clearLinkGeometries() {
+        this.links = null;
+        this.linksHint = null;
+        linkGeometries.clear();
     }
 
     public void clearSelection() {
@@ -310,6 +404,7 @@ public class SudokuPanel extends JPanel {
     }
 
     public void clearFocus() {
+        repaintCell(this.focusedCell);
         this.focusedCandidate = 0;
         this.focusedCell = null;
     }
@@ -322,6 +417,32 @@ public class SudokuPanel extends JPanel {
                 CELL_OUTER_SIZE, CELL_OUTER_SIZE);
     }
 
+    /**
+     * Repaint the cells whose value or potential values differ from
+     * the painted ones. Other cells, the legend and the grid are not repainted.
+     */
+    private void repaintChangedCells() {
+        for (int i = 0; i < 81; i++) {
+            Cell content = getPaintedCell(i % 9, i / 9);
+            if (getPaintedState(content) != paintedStates[i])
+                repaintCell(content);
+        }
+    }
+
+    /**
+     * Get what is painted of a cell, packed in an <tt>int</tt>: its value,
+     * its potential values and whether it is given
+     */
+    private static int getPaintedState(Cell cell) {
+        BitSet values = cell.getPotentialValues();
+        int result = cell.getValue();
+        for (int value = values.nextSetBit(1); value >= 0; value = values.nextSetBit(value + 1))
+            result |= 1 << (value + 3);
+        if (cell.getCellType() == CellType.Given)
+            result |= 1 << 13;
+        return result;
+    }
+
     private void setFocusedCell(Cell cell) {
         repaintCell(this.focusedCell);
         this.focusedCell = cell;
@@ -352,8 +473,23 @@ public class SudokuPanel extends JPanel {
         return getPreferredSize();
     }
 
+    /**
+     * Get the bounds of a string painted with the current font.
+     * The bounds are only computed once per font and string,
+     * as long as the rendering of the text does not change.
+     */
+    private Rectangle2D getStringBounds(Graphics g, String s) {
+        FontRenderContext context = ((Graphics2D)g).getFontRenderContext();
+        if (!context.equals(stringBoundsContext)) {
+            stringBounds.clear();
+            stringBoundsContext = context;
+        }
+        return stringBounds.computeIfAbsent(g.getFont(), font -> new HashMap<>())
+                .computeIfAbsent(s, key -> g.getFontMetrics().getStringBounds(key, g));
+    }
+
     private void drawStringCentered(Graphics g, String s, int x, int y) {
-        Rectangle2D rect = g.getFontMetrics().getStringBounds(s, g);
+        Rectangle2D rect = getStringBounds(g, s);
         double px = x - rect.getWidth() / 2;
         double py = y - rect.getHeight() / 2 - rect.getY();
         g.drawString(s, (int)(px + 0.5), (int)(py + 0.5));
@@ -428,8 +564,8 @@ public class SudokuPanel extends JPanel {
         g.setColor(col);
     }
 
-    private void initValueColor(Graphics g, Cell cell) {
-        Color col = cell.getCellType() == CellType.Given ? Color.black : Color.blue;
+    private void initValueColor(Graphics g, Cell cell, CellType cellType) {
+        Color col = cellType == CellType.Given ? Color.black : Color.blue;
         if (cell == selectedCell)
             col = new Color(
                     (col.getRed() + Color.orange.getRed()) / 2,
@@ -454,10 +590,27 @@ public class SudokuPanel extends JPanel {
         paintCellsValues(g);
         paintLinks(g);
         paintCellsPotentials(g);
+        readPaintedStates(g);
         //paintCursor(); // If you want to modify cursor, de-comment.
         g2.setTransform(oldTransform);
     }
 
+    /**
+     * Remember the values and potential values of the repainted cells
+     * @see #repaintChangedCells()
+     */
+    private void readPaintedStates(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        Rectangle cellRect = new Rectangle();
+        for (int y = 0; y < 9; y++) {
+            for (int x = 0; x < 9; x++) {
+                readCellRectangle(x, y, cellRect);
+                if (clip == null || clip.contains(cellRect))
+                    paintedStates[y * 9 + x] = getPaintedState(getPaintedCell(x, y));
+            }
+        }
+    }
+
     /**
      * Set the given rectangle to match the rectangle occupied by a cell.
      * Only valid if the graphics context is translated so that the
@@ -605,6 +758,7 @@ public class SudokuPanel extends JPanel {
                 readCellRectangle(x, y, cellRect);
                 if (clip.intersects(cellRect)) {
                     Cell cell = grid.getCell(x, y);
+                    Cell content = getPaintedCell(x, y);
                     // Paint potentials
                     int index = 0;
                     g.setFont(smallFont);
@@ -619,7 +773,7 @@ public class SudokuPanel extends JPanel {
                                     CELL_INNER_SIZE / 3, CELL_INNER_SIZE / 3);
                             paintIt = true;
                         }
-                        if (cell.hasPotentialValue(value)) {
+                        if (content.hasPotentialValue(value)) {
                             int cx = x * CELL_OUTER_SIZE + CELL_PAD
                                     + (index % 3) * (CELL_INNER_SIZE / 3) + CELL_INNER_SIZE / 6;
                             int cy = y * CELL_OUTER_SIZE + CELL_PAD
@@ -646,15 +800,16 @@ public class SudokuPanel extends JPanel {
                 readCellRectangle(x, y, cellRect);
                 if (clip.intersects(cellRect)) {
                     Cell cell = grid.getCell(x, y);
+                    Cell content = getPaintedCell(x, y);
                     // Paint cell value
-                    if (cell.getValue() != 0) {
+                    if (content.getValue() != 0) {
                         g.setFont(bigFont);
                         int cx = x * CELL_OUTER_SIZE + CELL_PAD + CELL_INNER_SIZE / 2
                                 + CELL_INNER_SIZE / 16;
                         int cy = y * CELL_OUTER_SIZE + CELL_PAD + CELL_INNER_SIZE / 2
                                 + CELL_INNER_SIZE / 16; // Fix offset
-                        initValueColor(g, cell);
-                        drawStringCentered(g, "" + cell.getValue(), cx, cy);
+                        initValueColor(g, cell, content.getCellType());
+                        drawStringCentered(g, "" + content.getValue(), cx, cy);
                     }
                 }
             }
@@ -708,10 +863,24 @@ public class SudokuPanel extends JPanel {
 
     }
 
-    private void paintLinks(Graphics g) {
-        g.setColor(Color.red);
-        if (links != null) {
+    /**
+     * The lines and arrows representing links, in the coordinates of the grid.
+     * Overlapping lines are moved apart. The geometry only depends on the links
+     * and on the size of the cells, so it is computed once and painted as is.
+     */
+    private class LinkGeometry {
+
+        private final Line[] lines;
+        private final Polygon[] arrows;
+        private final Rectangle[] bounds;
+
+        public LinkGeometry(Collection<Link> links) {
+            int count = links.size();
+            lines = new Line[count];
+            arrows = new Polygon[count];
+            bounds = new Rectangle[count];
             Collection<Line> paintedLines = new ArrayList<>();
+            int index = 0;
             for (Link link : links) {
                 double sx = link.getSrcCell().getX() * CELL_OUTER_SIZE + CELL_PAD + CELL_INNER_SIZE / 6;
                 double sy = link.getSrcCell().getY() * CELL_OUTER_SIZE + CELL_PAD + CELL_INNER_SIZE / 6;
@@ -764,28 +933,48 @@ public class SudokuPanel extends JPanel {
                         ey -= uy * CELL_INNER_SIZE / 6;
                     }
                     if (dstValue > 0) {
-                        // Draw arrow
+                        // Build arrow
                         double lx = ex - ux * 5 + uy * 2;
                         double ly = ey - uy * 5 - ux * 2;
                         double rx = ex - ux * 5 - uy * 2;
                         double ry = ey - uy * 5 + ux * 2;
-                        g.fillPolygon(new int[] {(int)(ex + mx), (int)(rx + mx), (int)(lx + mx)},
+                        arrows[index] = new Polygon(
+                                new int[] {(int)(ex + mx), (int)(rx + mx), (int)(lx + mx)},
                                 new int[] {(int)(ey + my), (int)(ry + my), (int)(ly + my)}, 3);
                     }
                     paintedLines.add(line);
                 }
-                // Draw the line
-                g.drawLine((int)(sx + mx), (int)(sy + my), (int)(ex + mx), (int)(ey + my));
-                //if (dstValue == 0 && srcValue == 0) {
-                //    Color oldColor = g.getColor();
-                //    g.setColor(Color.magenta);
-                //    g.drawLine((int)(sx + mx), (int)(sy + my), (int)(ex + mx), (int)(ey + my));
-                //    g.setColor(oldColor);
-                //} else {
-                //    g.drawLine((int)(sx + mx), (int)(sy + my), (int)(ex + mx), (int)(ey + my));
-                //}
+                Line moved = new Line((int)(sx + mx), (int)(sy + my), (int)(ex + mx), (int)(ey + my));
+                Rectangle area = new Rectangle(Math.min(moved.sx, moved.ex), Math.min(moved.sy, moved.ey),
+                        Math.abs(moved.ex - moved.sx), Math.abs(moved.ey - moved.sy));
+                if (arrows[index] != null)
+                    area.add(arrows[index].getBounds());
+                area.grow(2, 2); // Antialiasing
+                lines[index] = moved;
+                bounds[index] = area;
+                index++;
             }
         }
+
+        public void paint(Graphics g) {
+            Rectangle clip = g.getClipBounds();
+            for (int i = 0; i < lines.length; i++) {
+                if (clip == null || clip.intersects(bounds[i])) {
+                    if (arrows[i] != null)
+                        g.fillPolygon(arrows[i]);
+                    // Draw the line
+                    Line line = lines[i];
+                    g.drawLine(line.sx, line.sy, line.ex, line.ey);
+                }
+            }
+        }
+
+    }
+
+    private void paintLinks(Graphics g) {
+        g.setColor(Color.red);
+        if (links != null)
+            links.paint(g);
     }
 
     //private void paintCursor() {
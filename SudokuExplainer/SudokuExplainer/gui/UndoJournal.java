@@ -0,0 +1,156 @@
+package SudokuExplainer.gui;
+
+import java.util.*;
+import SudokuExplainer.units.*;
+
+/**
+ * Journal of the modifications of the grid made by the user,
+ * that can be undone and redone.
+ * <p>
+ * Only the cells modified by an action are recorded. The state of the grid
+ * is taken before the action ({@link #begin(Grid)}), and compared with the state
+ * after the action ({@link #end(Grid)}). Each modified cell is stored in a single
+ * <tt>long</tt>, holding its index and its value, potential values and type
+ * before and after the action. The states are compared by coordinates, so an
+ * action can replace the grid by another one.
+ * <p>
+ * The number of recorded cell changes is bounded: the oldest actions are
+ * forgotten when the limit is exceeded.
+ */
+class UndoJournal {
+
+    /*
+     * Layout of a recorded cell change: cell index, then the value,
+     * the potential values and the type before and after the action.
+     */
+    private static final int STATE_BITS = 4 + 9 + 2;
+    private static final long STATE_MASK = (1L << STATE_BITS) - 1;
+    private static final CellType[] CELL_TYPES = CellType.values();
+
+    private final Deque<long[]> undoActions = new ArrayDeque<>();
+    private final Deque<long[]> redoActions = new ArrayDeque<>();
+    private int changeCount = 0;
+    private int changeLimit;
+
+    private final int[] before = new int[81];
+    private boolean isRecording = false;
+
+
+    /**
+     * Create a new journal
+     * @param changeLimit the maximal number of cell changes to remember,
+     * in both the undo and redo histories
+     */
+    UndoJournal(int changeLimit) {
+        this.changeLimit = changeLimit;
+    }
+
+    /**
+     * Set the maximal number of cell changes to remember, forgetting
+     * the oldest actions if necessary
+     * @param changeLimit the maximal number of cell changes
+     */
+    void setChangeLimit(int changeLimit) {
+        this.changeLimit = changeLimit;
+        trim();
+    }
+
+    private static int getState(Cell cell) {
+        BitSet values = cell.getPotentialValues();
+        int mask = 0;
+        for (int value = values.nextSetBit(1); value >= 0; value = values.nextSetBit(value + 1))
+            mask |= 1 << (value - 1);
+        return cell.getValue() | (mask << 4) | (cell.getCellType().ordinal() << 13);
+    }
+
+    private static void setState(Cell cell, int state) {
+        int value = state & 0xF;
+        int mask = (state >> 4) & 0x1FF;
+        cell.setValue(value, CELL_TYPES[state >> 13]);
+        for (int v = 1; v <= 9; v++) {
+            if ((mask & (1 << (v - 1))) != 0)
+                cell.addPotentialValue(v);
+            else
+                cell.removePotentialValue(v);
+        }
+    }
+
+    /**
+     * Start recording an action
+     * @param grid the grid before the action
+     */
+    void begin(Grid grid) {
+        for (int i = 0; i < 81; i++)
+            before[i] = getState(grid.getCell(i % 9, i / 9));
+        isRecording = true;
+    }
+
+    /**
+     * End recording an action, started by {@link #begin(Grid)}.
+     * The redo history is cleared if the action modified the grid.
+     * @param grid the grid after the action
+     */
+    void end(Grid grid) {
+        if (!isRecording)
+            return;
+        isRecording = false;
+        long[] changes = new long[81];
+        int count = 0;
+        for (int i = 0; i < 81; i++) {
+            int after = getState(grid.getCell(i % 9, i / 9));
+            if (after != before[i])
+                changes[count++] = ((long)i << (2 * STATE_BITS)) | ((long)before[i] << STATE_BITS) | after;
+        }
+        if (count > 0) {
+            for (long[] action : redoActions)
+                changeCount -= action.length;
+            redoActions.clear();
+            undoActions.push(Arrays.copyOf(changes, count));
+            changeCount += count;
+            trim();
+        }
+    }
+
+    private void trim() {
+        while (changeCount > changeLimit && !undoActions.isEmpty())
+            changeCount -= undoActions.removeLast().length;
+        while (changeCount > changeLimit && !redoActions.isEmpty())
+            changeCount -= redoActions.removeLast().length;
+    }
+
+    /**
+     * Undo the last recorded action
+     * @param grid the grid to restore
+     * @return whether an action was undone
+     */
+    boolean undo(Grid grid) {
+        if (undoActions.isEmpty())
+            return false;
+        long[] changes = undoActions.pop();
+        for (long change : changes)
+            setState(getCell(grid, change), (int)((change >> STATE_BITS) & STATE_MASK));
+        redoActions.push(changes);
+        return true;
+    }
+
+    /**
+     * Redo the last undone action
+     * @param grid the grid to modify
+     * @return whether an action was redone
+     */
+    boolean redo(Grid grid) {
+        if (redoActions.isEmpty())
+            return false;
+        long[] changes = redoActions.pop();
+        for (long change : changes)
+            setState(getCell(grid, change), (int)(change & STATE_MASK));
+        undoActions.push(changes);
+        return true;
+    }
+
+    private static Cell getCell(Grid grid, long change) {
+        int index = (int)(change >> (2 * STATE_BITS));
+        return grid.getCell(index % 9, index / 9);
+    }
+
+}
@@ -0,0 +1,99 @@
+package SudokuExplainer.server;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import SudokuExplainer.solver.*;
+import SudokuExplainer.units.*;
+
+/**
+ * Bounded pool of solvers, running the requests of the solving service.
+ * <p>
+ * Each worker thread owns a grid. A request copies its puzzle into the grid of
+ * the worker that runs it, and is solved by a solver reused from the pool of
+ * the worker thread (see {@link Solver#acquire(Grid)}), so the solvers and
+ * their hint producers are built once per worker instead of once per request.
+ * <p>
+ * At most <tt>queueDepth</tt> requests wait for a free worker: further requests
+ * are rejected. A request that does not complete within the timeout is cancelled.
+ * @see SolverServer
+ */
+public class SolverPool {
+
+    /**
+     * A computation run by a worker of the pool
+     * @param <T> the type of the result
+     */
+    public interface Task<T> {
+        /**
+         * Run the computation
+         * @param solver the solver of the worker
+         * @param grid the grid of the solver, holding the puzzle of the request
+         * @return the result
+         * @throws Exception if the computation fails
+         */
+        T run(Solver solver, Grid grid) throws Exception;
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final ThreadLocal<Grid> grids = ThreadLocal.withInitial(Grid::new);
+    private final long timeout;
+
+
+    /**
+     * Create a new pool
+     * @param threadCount the number of workers
+     * @param queueDepth the maximal number of requests waiting for a worker
+     * @param timeout the maximal duration of a request, in milliseconds
+     */
+    public SolverPool(int threadCount, int queueDepth, long timeout) {
+        AtomicInteger index = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueDepth), runnable -> {
+            Thread thread = new Thread(runnable, "Solver worker " + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timeout = timeout;
+    }
+
+    /**
+     * Run a computation on a puzzle, and wait for its result.
+     * @param puzzle the puzzle. It is copied, and is not modified.
+     * @param task the computation
+     * @param <T> the type of the result
+     * @return the result of the computation
+     * @throws RejectedExecutionException if too many requests are waiting for a worker
+     * @throws TimeoutException if the computation did not complete in time.
+     * It is then cancelled.
+     * @throws ExecutionException if the computation failed
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    public <T> T run(Grid puzzle, Task<T> task)
+            throws TimeoutException, ExecutionException, InterruptedException {
+        Future<T> future = executor.submit(() -> {
+            Grid grid = grids.get();
+            puzzle.copyTo(grid);
+            Solver.rebuildPotentialValues(grid);
+            Solver solver = Solver.acquire(grid);
+            try {
+                return task.run(solver, grid);
+            } finally {
+                solver.release();
+            }
+        });
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | InterruptedException ex) {
+            future.cancel(true);
+            throw ex;
+        }
+    }
+
+    /**
+     * Stop the workers. The running computations are cancelled.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,291 @@
+package SudokuExplainer.server;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import com.sun.net.httpserver.*;
+import SudokuExplainer.solver.*;
+import SudokuExplainer.solver.checks.*;
+import SudokuExplainer.tools.tuples.Pair;
+import SudokuExplainer.tools.tuples.Quad;
+import SudokuExplainer.units.*;
+
+/**
+ * Local HTTP service giving access to the solver, answering in JSON.
+ * <p>
+ * The puzzle is given by the <tt>puzzle</tt> parameter of the query, or by
+ * the body of the request, as 81 characters: digits for the given values, any
+ * other character for the empty cells. The endpoints are:
+ * <ul>
+ * <li><tt>/validate</tt>: check that the puzzle has a unique solution
+ * <li><tt>/rate</tt>: rate the puzzle (ER, EP and ED) and list the techniques used
+ * <li><tt>/hint</tt>: get the next hint
+ * <li><tt>/solve</tt>: get the solution of the puzzle
+ * </ul>
+ * The requests are run by a {@link SolverPool}.
+ */
+public class SolverServer {
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_QUEUE_DEPTH = 64;
+    private static final int DEFAULT_TIMEOUT = 30;
+
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int UNPROCESSABLE = 422;
+    private static final int INTERNAL_ERROR = 500;
+    private static final int UNAVAILABLE = 503;
+    private static final int TIMEOUT = 504;
+
+    private final SolverPool pool;
+    private final HttpServer server;
+
+
+    private static class RequestException extends Exception {
+
+        private static final long serialVersionUID = 4730198217750325164L;
+
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+    }
+
+    /**
+     * Handler of an endpoint: compute the JSON answer for a puzzle
+     */
+    private interface Endpoint {
+        String answer(Grid puzzle) throws Exception;
+    }
+
+    /**
+     * Create a new server. The server is not started.
+     * @param port the port to listen to, on the loopback interface
+     * @param pool the pool of solvers running the requests
+     * @throws IOException if the port cannot be bound
+     */
+    public SolverServer(int port, SolverPool pool) throws IOException {
+        this.pool = pool;
+        this.server = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "HTTP handler");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        addEndpoint("/validate", this::validate);
+        addEndpoint("/rate", this::rate);
+        addEndpoint("/hint", this::hint);
+        addEndpoint("/solve", this::solve);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        pool.shutdown();
+    }
+
+    private void addEndpoint(String path, Endpoint endpoint) {
+        server.createContext(path, exchange -> {
+            int status = OK;
+            String answer;
+            try {
+                String method = exchange.getRequestMethod();
+                if (!method.equals("GET") && !method.equals("POST"))
+                    throw new RequestException(METHOD_NOT_ALLOWED, "Expected GET or POST");
+                answer = endpoint.answer(readPuzzle(exchange));
+            } catch (RequestException ex) {
+                status = ex.status;
+                answer = error(ex.getMessage());
+            } catch (RejectedExecutionException ex) {
+                status = UNAVAILABLE;
+                answer = error("Too many pending requests");
+            } catch (TimeoutException ex) {
+                status = TIMEOUT;
+                answer = error("The request timed out");
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof UnsupportedOperationException) {
+                    status = UNPROCESSABLE;
+                    answer = error(ex.getCause().getMessage());
+                } else {
+                    status = INTERNAL_ERROR;
+                    answer = error(String.valueOf(ex.getCause()));
+                }
+            } catch (Exception ex) {
+                status = INTERNAL_ERROR;
+                answer = error(ex.toString());
+            }
+            byte[] bytes = answer.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+    }
+
+    /**
+     * Read the puzzle of a request, from the <tt>puzzle</tt> parameter
+     * of the query or from the body of the request
+     */
+    private static Grid readPuzzle(HttpExchange exchange) throws IOException, RequestException {
+        String text = null;
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("puzzle="))
+                    text = URLDecoder.decode(parameter.substring(7), "UTF-8");
+            }
+        }
+        if (text == null) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] buffer = new byte[1024];
+                int count;
+                while ((count = in.read(buffer)) > 0 && body.size() < 4096)
+                    body.write(buffer, 0, count);
+            }
+            text = body.toString("UTF-8");
+            if (text.startsWith("puzzle="))
+                text = URLDecoder.decode(text.substring(7), "UTF-8");
+        }
+        text = text.replaceAll("\\s", "");
+        if (text.length() != 81)
+            throw new RequestException(BAD_REQUEST, "Expected a puzzle of 81 cells, got " + text.length());
+        Grid grid = new Grid();
+        for (int i = 0; i < 81; i++) {
+            char ch = text.charAt(i);
+            if (ch >= '1' && ch <= '9')
+                grid.setCellValue(i % 9, i / 9, ch - '0');
+        }
+        return grid;
+    }
+
+    private String validate(Grid puzzle) throws Exception {
+        Hint warning = pool.run(puzzle, (solver, grid) -> solver.checkValidity());
+        StringBuilder result = new StringBuilder("{\"valid\":").append(warning == null);
+        if (warning != null)
+            result.append(",\"message\":").append(quote(warning.toString()));
+        return result.append('}').toString();
+    }
+
+    private String rate(Grid puzzle) throws Exception {
+        return pool.run(puzzle, (solver, grid) -> {
+            Hint warning = solver.checkValidity();
+            if (warning != null)
+                throw new UnsupportedOperationException(warning.toString());
+            Pair<Map<Rule,Integer>, Quad<Double,Double,Double,Integer>> info = solver.solve(null);
+            double difficulty = 0;
+            for (Rule rule : info.getValue1().keySet())
+                difficulty = Math.max(difficulty, rule.getDifficulty());
+            StringBuilder result = new StringBuilder();
+            result.append("{\"er\":").append(difficulty);
+            result.append(",\"ep\":").append(info.getValue2().getValue2());
+            result.append(",\"ed\":").append(info.getValue2().getValue3());
+            result.append(",\"steps\":").append(info.getValue2().getValue4());
+            result.append(",\"techniques\":{");
+            String separator = "";
+            for (Map.Entry<String,Integer> entry : solver.toNamedList(info.getValue1()).entrySet()) {
+                result.append(separator).append(quote(entry.getKey())).append(':').append(entry.getValue());
+                separator = ",";
+            }
+            return result.append("}}").toString();
+        });
+    }
+
+    private String hint(Grid puzzle) throws Exception {
+        return pool.run(puzzle, (solver, grid) -> {
+            SingleHintAccumulator accu = new SingleHintAccumulator();
+            solver.gatherHints(new ArrayList<>(), new ArrayList<>(), accu, question -> true);
+            Hint hint = accu.getHint();
+            if (hint == null)
+                return "{\"hint\":null}";
+            StringBuilder result = new StringBuilder();
+            result.append("{\"hint\":").append(quote(hint.toString()));
+            result.append(",\"warning\":").append(hint instanceof WarningHint);
+            if (hint instanceof Rule) {
+                Rule rule = (Rule)hint;
+                result.append(",\"technique\":").append(quote(rule.getName()));
+                result.append(",\"difficulty\":").append(rule.getDifficulty());
+            }
+            if (hint.getCell() != null) {
+                result.append(",\"cell\":").append(quote(hint.getCell().toString()));
+                result.append(",\"value\":").append(hint.getValue());
+            }
+            if (hint instanceof IndirectHint) {
+                result.append(",\"eliminations\":{");
+                String separator = "";
+                for (Map.Entry<Cell,BitSet> entry : ((IndirectHint)hint).getRemovablePotentials().entrySet()) {
+                    result.append(separator).append(quote(entry.getKey().toString()));
+                    result.append(':').append(entry.getValue().toString().replace('{', '[').replace('}', ']'));
+                    separator = ",";
+                }
+                result.append('}');
+            }
+            return result.append('}').toString();
+        });
+    }
+
+    private String solve(Grid puzzle) throws Exception {
+        return pool.run(puzzle, (solver, grid) -> {
+            Hint warning = solver.checkValidity();
+            if (warning != null)
+                throw new UnsupportedOperationException(warning.toString());
+            new BruteForceAnalysis(false).solveRandom(grid, new Random(0));
+            StringBuilder result = new StringBuilder(81);
+            for (int i = 0; i < 81; i++)
+                result.append(grid.getCellValue(i % 9, i / 9));
+            return "{\"solution\":" + quote(result.toString()) + "}";
+        });
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    private static String quote(String text) {
+        if (text == null)
+            return "null";
+        StringBuilder result = new StringBuilder(text.length() + 2);
+        result.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch == '"' || ch == '\\')
+                result.append('\\').append(ch);
+            else if (ch < ' ')
+                result.append(String.format("\\u%04x", (int)ch));
+            else
+                result.append(ch);
+        }
+        return result.append('"').toString();
+    }
+
+    /**
+     * Start the solving service.
+     * @param args the port (8080 by default), the number of workers (the number
+     * of processors by default), the maximal number of waiting requests (64 by default)
+     * and the timeout of a request in seconds (30 by default)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 4)
+            throw new IllegalArgumentException("Expected arguments: [port [threads [queueDepth [timeout]]]]");
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threadCount = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        int queueDepth = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_QUEUE_DEPTH;
+        int timeout = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_TIMEOUT;
+        SolverPool pool = new SolverPool(threadCount, queueDepth, timeout * 1000L);
+        new SolverServer(port, pool).start();
+        System.out.println("Listening on http://localhost:" + port + "/");
+    }
+
+}
@@ -0,0 +1,98 @@
+package SudokuExplainer.solver;
+
+import SudokuExplainer.units.Grid;
+
+/**
+ * Helper for hint producers whose hints only depend on the content of a few
+ * regions, or on the positions of a single value.
+ * <p>
+ * If the previous search of a producer on the same grid has completed
+ * without producing any hint, a pattern that does not involve any region
+ * (or value) modified since then cannot produce a hint either. In that case
+ * only the modified regions and values have to be scanned again.
+ * <p>
+ * In all other cases (first search, other grid, hints found or search
+ * interrupted by the accumulator) everything is considered as changed, and
+ * the producer falls back to a full scan.
+ * <p>
+ * Typical usage:
+ * <pre>
+ * accu = scan.start(grid, accu);
+ * for (Grid.Region region : regions) {
+ *     if (scan.isChanged(region)) {
+ *         // search region and add hints to accu
+ *     }
+ * }
+ * scan.finish();
+ * </pre>
+ * @see Grid#getChangeCount()
+ */
+public class IncrementalScan {
+
+    private Grid lastGrid = null;
+    private long lastChangeCount;
+
+    private Grid grid = null;
+    private long changeCount;
+    private long since;
+    private boolean isHintFound;
+
+
+    /**
+     * Start a new search on the given grid.
+     * @param grid the grid to search
+     * @param accu the accumulator in which hints are to be added
+     * @return the accumulator to use during the search in place of <tt>accu</tt>
+     */
+    public HintsAccumulator start(Grid grid, final HintsAccumulator accu) {
+        this.since = (grid == lastGrid ? lastChangeCount : -1);
+        this.grid = grid;
+        this.changeCount = grid.getChangeCount();
+        this.isHintFound = false;
+        this.lastGrid = null; // Until finish() is reached
+        return hint -> {
+            isHintFound = true;
+            accu.add(hint);
+        };
+    }
+
+    /**
+     * Test whether a region has to be scanned in the current search
+     * @param region the region
+     * @return whether the region was modified since the last search
+     */
+    public boolean isChanged(Grid.Region region) {
+        return since < 0 || region.getLastChange() > since;
+    }
+
+    /**
+     * Test whether a value has to be scanned in the current search
+     * @param value the value, between 1 and 9, inclusive
+     * @return whether the value was modified since the last search
+     */
+    public boolean isChanged(int value) {
+        return since < 0 || grid.getLastChange(value) > since;
+    }
+
+    /**
+     * Test whether the whole grid is unchanged since the last search,
+     * in which case the current search can be skipped.
+     * @return whether nothing was modified since the last search
+     */
+    public boolean isUnchanged() {
+        return since >= 0 && changeCount == since;
+    }
+
+    /**
+     * Terminate the current search. Must be invoked when the search
+     * completed normally, in order to enable incremental scans.
+     */
+    public void finish() {
+        if (!isHintFound) {
+            lastGrid = grid;
+            lastChangeCount = changeCount;
+        }
+        grid = null;
+    }
+
+}
@@ -30,13 +30,16 @@ public interface Rule {
      * <li>2.3: Naked Single
      * <li>2.6, 2.8: Pointing, Claiming
      * <li>3.0, 3.2, 3.4: Naked Pair, X-Wing, Hidden Pair
+     * <li>3.4, 3.5: Finned X-Wing, Sashimi X-Wing
      * <li>3.6, 3.8, 4.0: Naked Triple, Swordfish, Hidden Triple
+     * <li>4.0, 4.1: Finned Swordfish, Sashimi Swordfish
      * <li>4.2, 4.4: XY-Wing, XYZ-Wing
      * <li>4.4: W-Wing (local)
      * <li>4.5, 4.8: XYZ-Wing Extension, WXYZ-Wing Extension (local)
      * <li>4.6, 5.0: WXYZ-Wing, VWXYZ-Wing (local)
      * <li>4.5 - 5.0: Unique Rectangles and Loops
      * <li>5.0, 5.2, 5.4: Naked Quadruple, Jellyfish, Hidden Quadruple
+     * <li>5.4, 5.5: Finned Jellyfish, Sashimi Jellyfish
      * <li>5.6 - 6.0: Bivalue Universal Graves
      * <li>6.2: Aligned Pair Exclusion (will be replaced)
      * <li>6.5 - 7.5: X-Cycles, Y-Cycles
@@ -2,6 +2,7 @@ package SudokuExplainer.solver;
 
 import java.security.*;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import SudokuExplainer.*;
 import SudokuExplainer.solver.checks.*;
 import SudokuExplainer.solver.rules.*;
@@ -50,7 +51,15 @@ public class Solver {
         "that may take a very long computing time.\n" +
         "Do you want to continue anyway?";
 
+    /*
+     * Solvers released by each thread, ready to be reused by the same thread.
+     * Building a solver creates all the hint producers and their working grids.
+     */
+    private static final int POOL_SIZE = 4;
+    private static final ThreadLocal<Deque<Solver>> pool = ThreadLocal.withInitial(ArrayDeque::new);
+
     private Grid grid;
+    private final EnumSet<SolvingTechnique> techniques;
     private List<HintProducer> directHintProducers;
     private List<IndirectHintProducer> indirectHintProducers;
     private List<WarningHintProducer> validatorHintProducers;
@@ -59,33 +68,40 @@ public class Solver {
     private List<IndirectHintProducer> chainingHintProducers2;
     private List<IndirectHintProducer> advancedHintProducers;
     private List<IndirectHintProducer> experimentalHintProducers;
+    private List<HintProducer> allHintProducers;
 
     private boolean isUsingAdvanced = false;
+    private volatile ProgressListener progressListener = null;
 
 
     private static class DefaultHintsAccumulator implements HintsAccumulator {
 
         private final List<Hint> result;
+        private final HintsAccumulator listener;
 
-        private DefaultHintsAccumulator(List<Hint> result) {
+        private DefaultHintsAccumulator(List<Hint> result, HintsAccumulator listener) {
             super();
             this.result = result;
+            this.listener = listener;
         }
 
-        public void add(Hint hint) {
-            if (!result.contains(hint))
+        public void add(Hint hint) throws InterruptedException {
+            if (!result.contains(hint)) {
                 result.add(hint);
+                if (listener != null)
+                    listener.add(hint);
+            }
         }
 
     } // class DefaultHintsAccumulator
 
     private void addIfWorth(SolvingTechnique technique, Collection<HintProducer> coll, HintProducer producer) {
-        if (Settings.getInstance().getTechniques().contains(technique))
+        if (techniques.contains(technique))
             coll.add(producer);
     }
 
     private void addIfWorth(SolvingTechnique technique, Collection<IndirectHintProducer> coll, IndirectHintProducer producer) {
-        if (Settings.getInstance().getTechniques().contains(technique))
+        if (techniques.contains(technique))
             coll.add(producer);
     }
 
@@ -104,9 +120,11 @@ public class Solver {
         addIfWorth(SolvingTechnique.NakedPair, indirectHintProducers, new NakedSubset(2));
         addIfWorth(SolvingTechnique.XWing, indirectHintProducers, new Fisherman(2));
         addIfWorth(SolvingTechnique.HiddenPair, indirectHintProducers, new HiddenSubset(2, false));
+        addIfWorth(SolvingTechnique.FinnedXWing, indirectHintProducers, new Fisherman(2, true));
         addIfWorth(SolvingTechnique.NakedTriple, indirectHintProducers, new NakedSubset(3));
         addIfWorth(SolvingTechnique.Swordfish, indirectHintProducers, new Fisherman(3));
         addIfWorth(SolvingTechnique.HiddenTriple, indirectHintProducers, new HiddenSubset(3, false));
+        addIfWorth(SolvingTechnique.FinnedSwordfish, indirectHintProducers, new Fisherman(3, true));
         addIfWorth(SolvingTechnique.TurbotFish, indirectHintProducers, new TurbotFish());
         addIfWorth(SolvingTechnique.XYWing, indirectHintProducers, new XYWing(false));
         addIfWorth(SolvingTechnique.XYZWing, indirectHintProducers, new XYWing(true));
@@ -122,6 +140,7 @@ public class Solver {
         //addIfWorth(SolvingTechnique.AlmostLockedTriple, indirectHintProducers, new AlmostLockedTriple());
         addIfWorth(SolvingTechnique.Jellyfish, indirectHintProducers, new Fisherman(4));
         addIfWorth(SolvingTechnique.HiddenQuad, indirectHintProducers, new HiddenSubset(4, false));
+        addIfWorth(SolvingTechnique.FinnedJellyfish, indirectHintProducers, new Fisherman(4, true));
         addIfWorth(SolvingTechnique.BivalueUniversalGrave, indirectHintProducers, new BivalueUniversalGrave());
         addIfWorth(SolvingTechnique.AlignedPairExclusion, indirectHintProducers, new AlignedPairExclusion());
     }
@@ -130,8 +149,8 @@ public class Solver {
         chainingHintProducers = new ArrayList<>();
         addIfWorth(SolvingTechnique.ForcingChainCycle, chainingHintProducers, new Chaining(false, false, false, 0));
         addIfWorth(SolvingTechnique.AlignedTripleExclusion, chainingHintProducers, new AlignedExclusion(3));
-        //addIfWorth(SolvingTechnique.AlignedQuadExclusion, chainingHintProducers, new AlignedExclusion(4));
-        //addIfWorth(SolvingTechnique.AlignedQuintExclusion, chainingHintProducers, new AlignedExclusion(5));
+        //addIfWorth(SolvingTechnique.AlignedQuadrupleExclusion, chainingHintProducers, new AlignedExclusion(4));
+        //addIfWorth(SolvingTechnique.AlignedQuintupleExclusion, chainingHintProducers, new AlignedExclusion(5));
         addIfWorth(SolvingTechnique.NishioForcingChain, chainingHintProducers, new Chaining(false, true, true, 0));
         addIfWorth(SolvingTechnique.MultipleForcingChain, chainingHintProducers, new Chaining(true, false, false, 0));
         addIfWorth(SolvingTechnique.DynamicForcingChain, chainingHintProducers, new Chaining(true, true, false, 0));
@@ -161,11 +180,107 @@ public class Solver {
 
     public Solver(Grid grid) {
         this.grid = grid;
+        this.techniques = Settings.getInstance().getTechniques();
         addDirectTechniques();
         addIndirectTechniques();
         addChainDifficultyTechniques();
         checkValidityAndSolvablity();
         addNestedChainTechniques();
+        allHintProducers = new ArrayList<>();
+        allHintProducers.addAll(directHintProducers);
+        allHintProducers.addAll(indirectHintProducers);
+        allHintProducers.addAll(validatorHintProducers);
+        allHintProducers.addAll(warningHintProducers);
+        allHintProducers.addAll(chainingHintProducers);
+        allHintProducers.addAll(chainingHintProducers2);
+        allHintProducers.addAll(advancedHintProducers);
+        allHintProducers.addAll(experimentalHintProducers);
+    }
+
+    /**
+     * Get a solver of the given grid, reusing a solver released by the current
+     * thread if possible. The solver should be released by {@link #release()}
+     * once the grid is solved.
+     * <p>
+     * A released solver is only reused if the selected solving techniques
+     * did not change since it was built.
+     * @param grid the grid to solve
+     * @return a solver of the grid
+     */
+    public static Solver acquire(Grid grid) {
+        EnumSet<SolvingTechnique> techniques = Settings.getInstance().getTechniques();
+        Deque<Solver> solvers = pool.get();
+        Solver solver;
+        while ((solver = solvers.poll()) != null) {
+            if (solver.techniques.equals(techniques)) {
+                solver.reset(grid);
+                return solver;
+            }
+        }
+        return new Solver(grid);
+    }
+
+    /**
+     * Give this solver back to the pool of the current thread, so that it can be
+     * returned by {@link #acquire(Grid)}. This solver must not be used anymore.
+     */
+    public void release() {
+        this.progressListener = null;
+        Deque<Solver> solvers = pool.get();
+        if (solvers.size() < POOL_SIZE)
+            solvers.push(this);
+    }
+
+    /**
+     * Make this solver work on another grid. The hint producers are kept,
+     * and the state related to the previous grid is forgotten.
+     * @param grid the new grid to solve
+     */
+    public void reset(Grid grid) {
+        this.grid = grid;
+        this.isUsingAdvanced = false;
+    }
+
+    /**
+     * Set the listener that is notified of the progress of the searches
+     * of hints. The listener is notified by the thread running the search,
+     * and can be set by another thread while the search runs.
+     * @param listener the listener, or <tt>null</tt> to remove the current listener
+     */
+    public void setProgressListener(ProgressListener listener) {
+        this.progressListener = listener;
+    }
+
+    /**
+     * Stop the current computation if it has been cancelled, that is, if the
+     * current thread has been interrupted.
+     * <p>
+     * The solver checks this before running each hint producer, and the long
+     * running producers (such as chaining) check it regularly. The interrupted
+     * status of the thread is kept, so that the whole computation stops.
+     * @throws CancellationException if the current thread has been interrupted
+     */
+    public static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted())
+            throw new CancellationException();
+    }
+
+    /**
+     * Check for cancellation, and notify the progress listener
+     * that the given producer is about to run.
+     */
+    private void fireProgress(HintProducer producer) {
+        checkCancelled();
+        ProgressListener listener = progressListener;
+        if (listener != null) {
+            double progress = (double)allHintProducers.indexOf(producer) / allHintProducers.size();
+            listener.progress(producer.toString(), progress);
+        }
+    }
+
+    private void getHints(HintProducer producer, HintsAccumulator accu) throws InterruptedException {
+        fireProgress(producer);
+        producer.getHints(grid, accu);
     }
 
     /**
@@ -175,7 +290,7 @@ public class Solver {
      * @param partType the Class of the part to cancel in
      * (block, row or column)
      */
-    private <T extends Grid.Region> void cancelBy(Class<T> partType) {
+    private static <T extends Grid.Region> void cancelBy(Grid grid, Class<T> partType) {
         Grid.Region[] parts = grid.getRegions(partType);
         for (Grid.Region part : parts) {
             for (int i = 0; i < 9; i++) {
@@ -194,6 +309,14 @@ public class Solver {
      * Rebuild, for each empty cell, the set of potential values.
      */
     public void rebuildPotentialValues() {
+        rebuildPotentialValues(grid);
+    }
+
+    /**
+     * Rebuild, for each empty cell of the given grid, the set of potential values.
+     * @param grid the grid
+     */
+    public static void rebuildPotentialValues(Grid grid) {
         for (int y = 0; y < 9; y++) {
             for (int x = 0; x < 9; x++) {
                 Cell cell = grid.getCell(x, y);
@@ -203,7 +326,7 @@ public class Solver {
                 }
             }
         }
-        cancelPotentialValues();
+        cancelPotentialValues(grid);
     }
 
     /**
@@ -212,6 +335,15 @@ public class Solver {
      * Can be invoked after a new cell gets a value.
      */
     public void cancelPotentialValues() {
+        cancelPotentialValues(grid);
+    }
+
+    /**
+     * Remove all illegal potential values of the given grid according
+     * to the current values of the cells.
+     * @param grid the grid
+     */
+    public static void cancelPotentialValues(Grid grid) {
         for (int y = 0; y < 9; y++) {
             for (int x = 0; x < 9; x++) {
                 Cell cell = grid.getCell(x, y);
@@ -219,9 +351,9 @@ public class Solver {
                     cell.clearPotentialValues();
             }
         }
-        cancelBy(Grid.Block.class);
-        cancelBy(Grid.Row.class);
-        cancelBy(Grid.Column.class);
+        cancelBy(grid, Grid.Block.class);
+        cancelBy(grid, Grid.Row.class);
+        cancelBy(grid, Grid.Column.class);
     }
 
     /**
@@ -231,7 +363,9 @@ public class Solver {
     private int lowerPriority() {
         try {
             int result = Thread.currentThread().getPriority();
-            Thread.currentThread().setPriority((Thread.NORM_PRIORITY + Thread.MIN_PRIORITY * 2) / 3);
+            // Never raise the priority of a thread that is already running lower
+            int lower = (Thread.NORM_PRIORITY + Thread.MIN_PRIORITY * 2) / 3;
+            Thread.currentThread().setPriority(Math.min(result, lower));
             return result;
         } catch (AccessControlException ignored) {}
         return 0;
@@ -265,13 +399,16 @@ public class Solver {
                 producer.getHints(grid, accu);
             for (WarningHintProducer producer : warningHintProducers)
                 producer.getHints(grid, accu);
-        } catch (InterruptedException willProbablyHappen) {}
-        normalPriority(oldPriority);
+        } catch (InterruptedException willProbablyHappen) {
+        } finally {
+            normalPriority(oldPriority);
+        }
         return accu.getHint();
     }
 
     private void gatherProducer(List<Hint> previousHints, List<Hint> curHints,
             HintsAccumulator accu, HintProducer producer) throws InterruptedException {
+        fireProgress(producer);
         // Get last hint producer. Because the last producer may not have produced
         // all its hints, we will need to restart from scratch with it.
         HintProducer lastProducer = null;
@@ -331,34 +468,49 @@ public class Solver {
                         gatherProducer(previousHints, result, accu, producer);
                 }
             }
-        } catch (InterruptedException willProbablyHappen) {}
-        if (!isAdvanced)
-            isUsingAdvanced = false;
-        normalPriority(oldPriority);
+        } catch (InterruptedException willProbablyHappen) {
+        } finally {
+            if (!isAdvanced)
+                isUsingAdvanced = false;
+            normalPriority(oldPriority);
+        }
     }
 
     public List<Hint> getAllHints(Asker asker) {
+        return getAllHints(asker, null);
+    }
+
+    /**
+     * Get all the hints that can be found with the easiest techniques
+     * that apply, reporting each of them as soon as it is found.
+     * @param asker the asker used to confirm the use of advanced techniques
+     * @param listener the accumulator to which each new hint is passed,
+     * in the order of the returned list, or <tt>null</tt>. It must not
+     * throw <tt>InterruptedException</tt>.
+     * @return all the hints found
+     */
+    public List<Hint> getAllHints(Asker asker, HintsAccumulator listener) {
         int oldPriority = lowerPriority();
         List<Hint> result = new ArrayList<>();
-        HintsAccumulator accu = new DefaultHintsAccumulator(result);
+        HintsAccumulator accu = new DefaultHintsAccumulator(result, listener);
         try {
             for (HintProducer producer : directHintProducers)
-                producer.getHints(grid, accu);
+                getHints(producer, accu);
             for (IndirectHintProducer producer : indirectHintProducers)
-                producer.getHints(grid, accu);
+                getHints(producer, accu);
             for (WarningHintProducer producer : validatorHintProducers)
-                producer.getHints(grid, accu);
+                getHints(producer, accu);
             if (result.isEmpty()) {
                 for (WarningHintProducer producer : warningHintProducers)
-                    producer.getHints(grid, accu);
+                    getHints(producer, accu);
             }
             if (result.isEmpty()) {
                 for (IndirectHintProducer producer : chainingHintProducers)
-                    producer.getHints(grid, accu);
+                    getHints(producer, accu);
             }
             if (result.isEmpty()) {
                 for (IndirectHintProducer producer : chainingHintProducers2)
-                    producer.getHints(grid, accu);
+                    getHints(producer, accu);
             }
             if (result.isEmpty() &&
                     !(advancedHintProducers.isEmpty() && experimentalHintProducers.isEmpty()) &&
@@ -366,15 +518,17 @@ public class Solver {
                 isUsingAdvanced = true;
                 for (IndirectHintProducer producer : advancedHintProducers) {
                     if (result.isEmpty())
-                        producer.getHints(grid, accu);
+                        getHints(producer, accu);
                 }
                 for (IndirectHintProducer producer : experimentalHintProducers) {
                     if (result.isEmpty() && Settings.getInstance().isUsingAllTechniques())
-                        producer.getHints(grid, accu);
+                        getHints(producer, accu);
                 }
             }
-        } catch (InterruptedException cannotHappen) {}
-        normalPriority(oldPriority);
+        } catch (InterruptedException cannotHappen) {
+        } finally {
+            normalPriority(oldPriority);
+        }
         return result;
     }
 
@@ -390,6 +544,13 @@ public class Solver {
         return true;
     }
 
+    private int getEmptyCellCount() {
+        int result = 0;
+        for (int i = 0; i < 9; i++)
+            result += grid.getRow(i).getEmptyCellCount();
+        return result;
+    }
+
     private static class RuleComparer implements Comparator<Rule> {
         public int compare(Rule r1, Rule r2) {
             double d1 = r1.getDifficulty();
@@ -411,69 +572,75 @@ public class Solver {
      */
     public Pair<Map<Rule,Integer>, Quad<Double,Double,Double,Integer>> solve(Asker asker) {
         int oldPriority = lowerPriority();
-        // rebuildPotentialValues();
-        Map<Rule,Integer> usedRules = new TreeMap<>(new RuleComparer());
-        double difficulty, pearlDifficulty, diamondDifficulty;
-        difficulty = pearlDifficulty = diamondDifficulty = 0.0;
-        double tempDiff = 0.0;
-        boolean diamondCheck = false;
-        int stepCount = 0;
-
-        boolean isUsingAdvanced = false;
-        while (!isSolved()) {
-            SingleHintAccumulator accu = new SingleHintAccumulator();
-            try {
-                for (HintProducer producer : directHintProducers)
-                    producer.getHints(grid, accu);
-                for (IndirectHintProducer producer : indirectHintProducers)
-                    producer.getHints(grid, accu);
-                for (IndirectHintProducer producer : chainingHintProducers)
-                    producer.getHints(grid, accu);
-                for (IndirectHintProducer producer : chainingHintProducers2)
-                    producer.getHints(grid, accu);
-                if (!(advancedHintProducers.isEmpty() && experimentalHintProducers.isEmpty()) &&
-                        (asker == null || isUsingAdvanced || asker.ask(ADVANCED_WARNING1))) {
-                    isUsingAdvanced = true;
-                    for (IndirectHintProducer producer : advancedHintProducers)
+        try {
+            // rebuildPotentialValues();
+            Map<Rule,Integer> usedRules = new TreeMap<>(new RuleComparer());
+            double difficulty, pearlDifficulty, diamondDifficulty;
+            difficulty = pearlDifficulty = diamondDifficulty = 0.0;
+            double tempDiff = 0.0;
+            boolean diamondCheck = false;
+            int stepCount = 0;
+
+            boolean isUsingAdvanced = false;
+            while (!isSolved()) {
+                checkCancelled();
+                if (progressListener != null)
+                    progressListener.progress("Step " + (stepCount + 1), 1.0 - getEmptyCellCount() / 81.0);
+                SingleHintAccumulator accu = new SingleHintAccumulator();
+                try {
+                    for (HintProducer producer : directHintProducers)
                         producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : experimentalHintProducers) {
-                        if (Settings.getInstance().isUsingAllTechniques())
+                    for (IndirectHintProducer producer : indirectHintProducers)
+                        producer.getHints(grid, accu);
+                    for (IndirectHintProducer producer : chainingHintProducers)
+                        producer.getHints(grid, accu);
+                    for (IndirectHintProducer producer : chainingHintProducers2)
+                        producer.getHints(grid, accu);
+                    if (!(advancedHintProducers.isEmpty() && experimentalHintProducers.isEmpty()) &&
+                            (asker == null || isUsingAdvanced || asker.ask(ADVANCED_WARNING1))) {
+                        isUsingAdvanced = true;
+                        for (IndirectHintProducer producer : advancedHintProducers)
                             producer.getHints(grid, accu);
+                        for (IndirectHintProducer producer : experimentalHintProducers) {
+                            if (Settings.getInstance().isUsingAllTechniques())
+                                producer.getHints(grid, accu);
+                        }
+                    }
+                } catch (InterruptedException willHappen) {}
+                Hint hint = accu.getHint();
+                if (hint == null)
+                    throw new UnsupportedOperationException("Failed to solve this Sudoku");
+                assert hint instanceof Rule;
+                Rule rule = (Rule)hint;
+                double ruleDiff = rule.getDifficulty();
+                if (usedRules.containsKey(rule))
+                    usedRules.put(rule, usedRules.get(rule) + 1);
+                else
+                    usedRules.put(rule, 1);
+                hint.apply();
+
+                if (stepCount++ == 0) {
+                    // Only for step 1
+                    pearlDifficulty = ruleDiff;
+                    if (ruleDiff <= 2.5) {
+                        diamondDifficulty = ruleDiff;
+                        diamondCheck = true;
+                        continue;
                     }
                 }
-            } catch (InterruptedException willHappen) {}
-            Hint hint = accu.getHint();
-            if (hint == null)
-                throw new UnsupportedOperationException("Failed to solve this Sudoku");
-            assert hint instanceof Rule;
-            Rule rule = (Rule)hint;
-            double ruleDiff = rule.getDifficulty();
-            if (usedRules.containsKey(rule))
-                usedRules.put(rule, usedRules.get(rule) + 1);
-            else
-                usedRules.put(rule, 1);
-            hint.apply();
-
-            if (stepCount++ == 0) {
-                // Only for step 1
-                pearlDifficulty = ruleDiff;
-                if (ruleDiff <= 2.5) {
-                    diamondDifficulty = ruleDiff;
+
+                if (ruleDiff >= 2.5) {
+                    tempDiff = ruleDiff;
+                }
+                else if (!diamondCheck) {
+                    diamondDifficulty = tempDiff;
                     diamondCheck = true;
-                    continue;
                 }
             }
-
-            if (ruleDiff >= 2.5) {
-                tempDiff = ruleDiff;
-            }
-            else if (!diamondCheck) {
-                diamondDifficulty = tempDiff;
-                diamondCheck = true;
-            }
+            return new Pair<>(usedRules, new Quad<>(difficulty, pearlDifficulty, diamondDifficulty, stepCount));
+        } finally {
+            normalPriority(oldPriority);
         }
-        normalPriority(oldPriority);
-        return new Pair<>(usedRules, new Quad<>(difficulty, pearlDifficulty, diamondDifficulty, stepCount));
     }
 
     /**
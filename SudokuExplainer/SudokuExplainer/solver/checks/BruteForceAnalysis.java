@@ -45,7 +45,7 @@ public class BruteForceAnalysis implements WarningHintProducer {
         boolean hasSolution = analyse(grid1, false);
         if (!hasSolution) {
             grid.copyTo(grid1);
-            new Solver(grid1).rebuildPotentialValues();
+            Solver.rebuildPotentialValues(grid1);
             WarningMessage message;
             if (grid.equals(grid1)) {
                 // All potential values correct - No solution
@@ -92,7 +92,7 @@ public class BruteForceAnalysis implements WarningHintProducer {
      * @return information about the number of solutions
      */
     public int getCountSolutions(Grid grid) {
-        new Solver(grid).rebuildPotentialValues();
+        Solver.rebuildPotentialValues(grid);
         grid.copyTo(grid1);
         if (!analyse(grid1, false))
             return 0; // no solution
@@ -104,6 +104,42 @@ public class BruteForceAnalysis implements WarningHintProducer {
             return 2; // more than one solution
     }
 
+    /**
+     * Check whether the given grid has another solution than the given one,
+     * knowing that it had an unique solution before the given cells were
+     * cleared.
+     * <p>
+     * Any other solution must differ from the known one in at least one of
+     * the cleared cells. Hence, for each cleared cell, this only searches for
+     * a solution in which that cell does not have its known value (and the
+     * cells checked before have it). Unlike {@link #getCountSolutions(Grid)},
+     * this does not require complete solutions of the grid, and most searches
+     * fail after a few steps.
+     * <p>
+     * The potential values of the grid must be up to date. The grid itself
+     * is not modified.
+     * @param grid the sudoku grid
+     * @param solution the known solution of the grid
+     * @param clearedCells the cells of the grid that were cleared
+     * @return whether the grid has more than one solution
+     */
+    public boolean hasOtherSolution(Grid grid, Grid solution, Collection<Cell> clearedCells) {
+        List<Cell> checkedCells = new ArrayList<>();
+        for (Cell cell : clearedCells) {
+            grid.copyTo(grid1);
+            for (Cell checked : checkedCells) {
+                int value = solution.getCellValue(checked.getX(), checked.getY());
+                grid1.getCell(checked.getX(), checked.getY()).setValueAndCancel(value, CellType.Modifiable);
+            }
+            int value = solution.getCellValue(cell.getX(), cell.getY());
+            grid1.getCell(cell.getX(), cell.getY()).removePotentialValue(value);
+            if (analyse(grid1, false))
+                return true;
+            checkedCells.add(cell);
+        }
+        return false;
+    }
+
     /**
      * Check if the grid has been solved
      * @param grid the sudoku grid
@@ -242,7 +278,7 @@ public class BruteForceAnalysis implements WarningHintProducer {
     public boolean solveRandom(Grid grid, Random rnd) {
         DirectHintProducer hiddenSingle = new HiddenSingle();
         DirectHintProducer nakedSingle = new NakedSingle();
-        new Solver(grid).rebuildPotentialValues();
+        Solver.rebuildPotentialValues(grid);
         return analyse(grid, false, rnd, hiddenSingle, nakedSingle);
     }
 
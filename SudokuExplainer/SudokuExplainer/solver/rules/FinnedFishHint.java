@@ -0,0 +1,156 @@
+package SudokuExplainer.solver.rules;
+
+import java.util.*;
+
+import SudokuExplainer.solver.*;
+import SudokuExplainer.tools.*;
+import SudokuExplainer.units.Cell;
+import SudokuExplainer.units.Grid;
+import SudokuExplainer.units.Link;
+
+/**
+ * Finned and Sashimi X-Wing, Swordfish and Jellyfish hints
+ */
+public class FinnedFishHint extends IndirectHint implements Rule {
+
+    private final Cell[] cells;
+    private final int value;
+    private final Map<Cell, BitSet> bodyPotentials;
+    private final Map<Cell, BitSet> finPotentials;
+    private final Grid.Region[] baseSets;
+    private final Grid.Region[] coverSets;
+    private final boolean isSashimi;
+
+    public FinnedFishHint(IndirectHintProducer rule, Cell[] cells, int value,
+            Map<Cell, BitSet> bodyPotentials, Map<Cell, BitSet> finPotentials,
+            Map<Cell, BitSet> removePotentials, Grid.Region[] baseSets,
+            Grid.Region[] coverSets, boolean isSashimi) {
+        super(rule, removePotentials);
+        this.cells = cells;
+        this.value = value;
+        this.bodyPotentials = bodyPotentials;
+        this.finPotentials = finPotentials;
+        this.baseSets = baseSets;
+        this.coverSets = coverSets;
+        this.isSashimi = isSashimi;
+    }
+
+    @Override
+    public int getViewCount() {
+        return 1;
+    }
+
+    @Override
+    public Cell[] getSelectedCells() {
+        return cells;
+    }
+
+    @Override
+    public Map<Cell, BitSet> getGreenPotentials(int viewNum) {
+        return bodyPotentials;
+    }
+
+    @Override
+    public Map<Cell, BitSet> getRedPotentials(int viewNum) {
+        return super.getRemovablePotentials();
+    }
+
+    @Override
+    public Map<Cell, BitSet> getBluePotentials(Grid grid, int viewNum) {
+        return finPotentials;
+    }
+
+    @Override
+    public Collection<Link> getLinks(int viewNum) {
+        return null;
+    }
+
+    @Override
+    public Grid.Region[] getRegions() {
+        Grid.Region[] result = new Grid.Region[baseSets.length * 2];
+        for (int i = 0; i < baseSets.length; i++) {
+            result[i * 2] = baseSets[i];
+            result[i * 2 + 1] = coverSets[i];
+        }
+        return result;
+    }
+
+    public double getDifficulty() {
+        int degree = baseSets.length;
+        if (degree == 2)
+            return isSashimi ? 3.5 : 3.4; // X-Wing
+        else if (degree == 3)
+            return isSashimi ? 4.1 : 4.0; // Swordfish
+        else
+            return isSashimi ? 5.5 : 5.4; // Jellyfish
+    }
+
+    public String getName() {
+        String prefix = isSashimi ? "Sashimi " : "Finned ";
+        int degree = baseSets.length;
+        if (degree == 2)
+            return prefix + "X-Wing";
+        else if (degree == 3)
+            return prefix + "Swordfish";
+        else if (degree == 4)
+            return prefix + "Jellyfish";
+        return null;
+    }
+
+    public String getClueHtml(boolean isBig) {
+        if (isBig) {
+            return "Look for a " + getName() +
+            " on the value <b>" + value + "</b>";
+        } else {
+            return "Look for a " + getName();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getName() +
+                ": " +
+                Cell.toFullString(this.cells) +
+                ": " +
+                value +
+                " in " + baseSets.length + " " + baseSets[0].toString() +
+                "s and " + coverSets.length + " " + coverSets[0].toString() + "s";
+    }
+
+    @Override
+    public String toHtml() {
+        final String[] numberNames = new String[] {
+                "two", "three", "four" };
+        String result = HtmlLoader.loadHtml(this, "FinnedFishHint.html");
+        String ruleName = getName();
+        String valueName = Integer.toString(value);
+        String degreeName = numberNames[baseSets.length - 2];
+        String baseSetName = baseSets[0].toString();
+        String coverSetName = coverSets[0].toString();
+        String fins = Cell.toString(finPotentials.keySet().toArray(new Cell[0]));
+        return HtmlLoader.format(result, ruleName, valueName, degreeName, baseSetName,
+                coverSetName, fins);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof FinnedFishHint))
+            return false;
+        FinnedFishHint other = (FinnedFishHint)o;
+        if (this.value != other.value)
+            return false;
+        if (!this.finPotentials.keySet().equals(other.finPotentials.keySet()))
+            return false;
+        return this.bodyPotentials.keySet().equals(other.bodyPotentials.keySet());
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 0;
+        for (Cell cell : cells)
+            result ^= cell.hashCode();
+        result ^= value;
+        return result;
+    }
+
+}
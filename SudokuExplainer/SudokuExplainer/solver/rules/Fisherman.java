@@ -9,70 +9,284 @@ import SudokuExplainer.units.Grid;
 
 
 /**
- * Implementation of X-Wing, Swordfish and Jellyfish solving techniques.
+ * Implementation of X-Wing, Swordfish and Jellyfish solving techniques,
+ * and of their finned and sashimi variants.
  * The following techniques are implemented depending on the given degree:
  * <ul>
  * <li>Degree 2: X-Wing
  * <li>Degree 3: Swordfish
  * <li>Degree 4: Jellyfish
  * </ul>
+ * <p>
+ * The positions of each value are represented by one 9-bit mask per line
+ * (bit <tt>i</tt> set if the value can be in the cell at index <tt>i</tt>
+ * of the line). Base sets are chosen recursively, and a branch is pruned
+ * as soon as the union of the masks of the chosen base sets has too many
+ * bits set for every value.
  */
 public class Fisherman implements IndirectHintProducer {
 
     private final int degree;
+    private final boolean isFinned;
+    private final IncrementalScan scan = new IncrementalScan();
+
+    // Search state
+    private Grid grid;
+    private Class<? extends Grid.Region> baseSetType;
+    private Class<? extends Grid.Region> coverSetType;
+    private HintsAccumulator accu;
+    private int[][] lineMasks; // [value][line] positions of the value in the base sets
+    private final int[] baseIndexes;
+    private final int[][] unions;
 
 
     public Fisherman(int degree) {
+        this(degree, false);
+    }
+
+    /**
+     * Create a new fish producer
+     * @param degree the number of base sets (2, 3 or 4)
+     * @param isFinned <tt>false</tt> to search for basic fishes; <tt>true</tt>
+     * to search for finned and sashimi fishes only.
+     */
+    public Fisherman(int degree, boolean isFinned) {
         this.degree = degree;
+        this.isFinned = isFinned;
+        this.baseIndexes = new int[degree];
+        this.unions = new int[degree][10];
     }
 
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
-        getHints(grid, Grid.Column.class, Grid.Row.class, accu);
-        getHints(grid, Grid.Row.class, Grid.Column.class, accu);
+        accu = scan.start(grid, accu);
+        if (scan.isUnchanged()) {
+            scan.finish();
+            return;
+        }
+        // Build the position masks of each value in the rows and in the columns
+        int[][] rowMasks = new int[10][9];
+        int[][] columnMasks = new int[10][9];
+        int[] occurances = new int[10];
+        for (int y = 0; y < 9; y++) {
+            for (int x = 0; x < 9; x++) {
+                Cell cell = grid.getCell(x, y);
+                if (cell.getValue() != 0)
+                    occurances[cell.getValue()]++;
+                BitSet potentials = cell.getPotentialValues();
+                for (int value = potentials.nextSetBit(1); value >= 0; value = potentials.nextSetBit(value + 1)) {
+                    rowMasks[value][y] |= 1 << x;
+                    columnMasks[value][x] |= 1 << y;
+                }
+            }
+        }
+        // Fishes only depend on the positions of their value: skip the values that have
+        // not changed. Pattern is only possible if there are at least (degree * 2) missing
+        // occurances of the value.
+        int values = 0;
+        for (int value = 1; value <= 9; value++) {
+            if (scan.isChanged(value) && occurances[value] + degree * 2 <= 9)
+                values |= 1 << value;
+        }
+        try {
+            this.grid = grid;
+            this.accu = accu;
+            if (values != 0) {
+                search(Grid.Column.class, Grid.Row.class, columnMasks, values);
+                search(Grid.Row.class, Grid.Column.class, rowMasks, values);
+            }
+        } finally {
+            this.grid = null;
+            this.accu = null;
+            this.lineMasks = null;
+        }
+        scan.finish();
     }
 
-    private <TBaseSet extends Grid.Region, TCoverSet extends Grid.Region> void getHints(
-            Grid grid, Class<TBaseSet> baseSetType, Class<TCoverSet> coverSetType, HintsAccumulator accu)
+    private void search(Class<? extends Grid.Region> baseSetType,
+            Class<? extends Grid.Region> coverSetType, int[][] lineMasks, int values)
             throws InterruptedException {
         assert !baseSetType.equals(coverSetType);
+        this.baseSetType = baseSetType;
+        this.coverSetType = coverSetType;
+        this.lineMasks = lineMasks;
+        searchBaseSets(degree, 9, new int[10], values);
+    }
 
-        // Get occurance count for each value
-        int[] occurances = new int[10];
-        for (int value = 1; value <= 9; value++)
-            occurances[value] = grid.getCountOccurancesOfValue(value);
+    /**
+     * Choose the remaining base sets, from the last one to the first one.
+     * <p>
+     * The combinations of base sets are enumerated in the same order as
+     * {@link Permutations}, that is, by increasing binary value.
+     * @param depth the number of base sets still to choose
+     * @param limit the index of the last chosen base set
+     * @param unionAbove for each value, the union of the masks of the
+     * base sets chosen so far
+     * @param values the mask of the values for which a fish is still possible
+     */
+    private void searchBaseSets(int depth, int limit, int[] unionAbove, int values)
+            throws InterruptedException {
+        // A finned fish has its fins in a single block, whose three positions
+        // cannot all be cover sets
+        int maxUnion = isFinned ? degree + 2 : degree;
+        int[] union = unions[depth - 1];
+        for (int line = depth - 1; line < limit; line++) {
+            int alive = 0;
+            for (int value = 1; value <= 9; value++) {
+                if ((values & (1 << value)) != 0) {
+                    int mask = lineMasks[value][line];
+                    if (Integer.bitCount(mask) > 1) {
+                        int lineUnion = unionAbove[value] | mask;
+                        if (Integer.bitCount(lineUnion) <= maxUnion) {
+                            union[value] = lineUnion;
+                            alive |= 1 << value;
+                        }
+                    }
+                }
+            }
+            if (alive != 0) {
+                baseIndexes[depth - 1] = line;
+                if (depth > 1)
+                    searchBaseSets(depth - 1, line, union, alive);
+                else {
+                    for (int value = 1; value <= 9; value++) {
+                        if ((alive & (1 << value)) != 0) {
+                            if (isFinned)
+                                searchFins(value, union[value]);
+                            else if (Integer.bitCount(union[value]) == degree)
+                                addFishHint(value, union[value]);
+                        }
+                    }
+                }
+            }
+        }
+    }
 
-        Grid.Region[] parts = grid.getRegions(baseSetType);
-        // Iterate on lines tuples
-        Permutations perm = new Permutations(degree, 9);
-        while (perm.hasNext()) {
-            int[] indices = perm.nextBitNums();
-            assert indices.length == degree;
+    private void addFishHint(int value, int coverMask) throws InterruptedException {
+        IndirectHint hint = createFishHint(grid, baseSetType, coverSetType,
+                toBitSet(getBaseMask()), toBitSet(coverMask), value);
+        if (hint.isWorth())
+            accu.add(hint);
+    }
 
-            BitSet myIndices = new BitSet(9);
-            for (int index : indices)
-                myIndices.set(index);
+    /**
+     * Search for finned and sashimi fishes on the chosen base sets.
+     * <p>
+     * For each block crossing the base sets, the positions outside of the
+     * block must all be covered. The cover sets are completed with positions
+     * of the block; the remaining candidates of the block are the fins.
+     * @param value the value
+     * @param union the union of the masks of the base sets
+     */
+    private void searchFins(int value, int union) throws InterruptedException {
+        if (Integer.bitCount(union) <= degree)
+            return; // Basic fish
+        int baseMask = getBaseMask();
+        for (int band = 0; band < 3; band++) {
+            int bandMask = 7 << (band * 3);
+            if ((baseMask & bandMask) == 0)
+                continue;
+            for (int stack = 0; stack < 3; stack++) {
+                int stackMask = 7 << (stack * 3);
+                int required = 0;
+                for (int i = 0; i < degree; i++) {
+                    int mask = lineMasks[value][baseIndexes[i]];
+                    if (baseIndexes[i] / 3 == band)
+                        mask &= ~stackMask;
+                    required |= mask;
+                }
+                int count = degree - Integer.bitCount(required);
+                int free = union & stackMask & ~required;
+                if (count < 0 || count >= Integer.bitCount(free))
+                    continue; // Too many positions to cover, or no fin
+                // Try each completion of the cover sets
+                for (int extra = free; extra != 0; extra = (extra - 1) & free) {
+                    if (Integer.bitCount(extra) == count)
+                        addFinnedFishHint(value, required | extra, free & ~extra,
+                                band, stack);
+                }
+                if (count == 0)
+                    addFinnedFishHint(value, required, free, band, stack);
+            }
+        }
+    }
 
-            // Iterate on values
-            for (int value = 1; value <= 9; value++) {
-                // Pattern is only possible if there are at least (degree * 2) missing occurances
-                // of the value.
-                if (occurances[value] + degree * 2 <= 9) {
-                    // Check for exactly the same positions of the value in all lines
-                    BitSet[] positions = new BitSet[degree];
-                    for (int i = 0; i < degree; i++)
-                        positions[i] = parts[indices[i]].getPotentialPositions(value);
-                    BitSet common = CommonTuples.searchCommonTuple(positions, degree);
-
-                    if (common != null) {
-                        // Potential hint found
-                        IndirectHint hint = createFishHint(grid, baseSetType, coverSetType,
-                                myIndices, common, value);
-                        if (hint.isWorth())
-                            accu.add(hint);
-                    }
+    private void addFinnedFishHint(int value, int coverMask, int finMask, int band, int stack)
+            throws InterruptedException {
+        Grid.Region[] baseSets = grid.getRegions(baseSetType);
+        Grid.Region[] coverSets = grid.getRegions(coverSetType);
+        boolean isSashimi = false;
+        for (int i = 0; i < degree; i++) {
+            int body = lineMasks[value][baseIndexes[i]] & coverMask;
+            if (body == 0)
+                return; // Degenerated
+            if (Integer.bitCount(body) == 1)
+                isSashimi = true;
+        }
+        int baseMask = getBaseMask();
+        // Removable potentials: in the cover sets and in the block of the fins
+        Map<Cell,BitSet> removablePotentials = new HashMap<>();
+        for (int cover = 0; cover < 9; cover++) {
+            if ((coverMask & (1 << cover)) != 0 && cover / 3 == stack) {
+                for (int base = band * 3; base < band * 3 + 3; base++) {
+                    if ((baseMask & (1 << base)) == 0
+                            && (lineMasks[value][base] & (1 << cover)) != 0)
+                        removablePotentials.put(coverSets[cover].getCell(base),
+                                SingletonBitSet.create(value));
+                }
+            }
+        }
+        if (removablePotentials.isEmpty())
+            return;
+        // Body and fins
+        List<Cell> cells = new ArrayList<>();
+        Map<Cell,BitSet> bodyPotentials = new HashMap<>();
+        Map<Cell,BitSet> finPotentials = new LinkedHashMap<>();
+        List<Grid.Region> bases = new ArrayList<>();
+        List<Grid.Region> covers = new ArrayList<>();
+        for (int i = 0; i < degree; i++) {
+            int base = baseIndexes[i];
+            bases.add(baseSets[base]);
+            int mask = lineMasks[value][base];
+            for (int pos = 0; pos < 9; pos++) {
+                if ((mask & (1 << pos)) != 0) {
+                    Cell cell = baseSets[base].getCell(pos);
+                    cells.add(cell);
+                    if ((coverMask & (1 << pos)) != 0)
+                        bodyPotentials.put(cell, SingletonBitSet.create(value));
+                    else
+                        finPotentials.put(cell, SingletonBitSet.create(value));
                 }
             }
         }
+        for (int cover = 0; cover < 9; cover++) {
+            if ((coverMask & (1 << cover)) != 0)
+                covers.add(coverSets[cover]);
+        }
+        assert !finPotentials.isEmpty();
+        Cell[] allCells = new Cell[cells.size()];
+        cells.toArray(allCells);
+        Grid.Region[] baseRegions = new Grid.Region[degree];
+        Grid.Region[] coverRegions = new Grid.Region[degree];
+        bases.toArray(baseRegions);
+        covers.toArray(coverRegions);
+        accu.add(new FinnedFishHint(this, allCells, value, bodyPotentials, finPotentials,
+                removablePotentials, baseRegions, coverRegions, isSashimi));
+    }
+
+    private int getBaseMask() {
+        int result = 0;
+        for (int index : baseIndexes)
+            result |= 1 << index;
+        return result;
+    }
+
+    private static BitSet toBitSet(int mask) {
+        BitSet result = new BitSet(9);
+        for (int i = 0; i < 9; i++) {
+            if ((mask & (1 << i)) != 0)
+                result.set(i);
+        }
+        return result;
     }
 
     private <TBaseSet extends Grid.Region, TCoverSet extends Grid.Region> IndirectHint createFishHint(
@@ -135,12 +349,13 @@ public class Fisherman implements IndirectHintProducer {
 
     @Override
     public String toString() {
+        String prefix = isFinned ? "Finned " : "";
         if (degree == 2)
-            return "X-Wings";
+            return prefix + "X-Wings";
         else if (degree == 3)
-            return "Swordfishes";
+            return prefix + "Swordfishes";
         else if (degree == 4)
-            return "Jellyfishes";
+            return prefix + "Jellyfishes";
         return null;
     }
 
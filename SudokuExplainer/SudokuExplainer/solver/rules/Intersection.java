@@ -7,6 +7,7 @@ import SudokuExplainer.solver.rules.directed.DirectLockingHint;
 import SudokuExplainer.tools.*;
 import SudokuExplainer.units.Cell;
 import SudokuExplainer.units.Grid;
+import SudokuExplainer.units.LinkIndex;
 
 /**
  * Implementation of Pointing and Claiming solving techniques.
@@ -14,16 +15,44 @@ import SudokuExplainer.units.Grid;
 public class Intersection implements IndirectHintProducer {
 
     private final boolean isDirectMode;
+    private final IncrementalScan scan = new IncrementalScan();
 
     public Intersection(boolean isDirectMode) {
         this.isDirectMode = isDirectMode;
     }
 
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
+        accu = scan.start(grid, accu);
+        if (scan.isUnchanged()) {
+            scan.finish();
+            return;
+        }
         getHints(grid, Grid.Block.class, Grid.Column.class, accu);
         getHints(grid, Grid.Block.class, Grid.Row.class, accu);
         getHints(grid, Grid.Column.class, Grid.Block.class, accu);
         getHints(grid, Grid.Row.class, Grid.Block.class, accu);
+        scan.finish();
+    }
+
+    /**
+     * Test whether an intersection of two regions has to be scanned again.
+     * <p>
+     * The hints only depend on the two regions, and in direct mode, on the
+     * other regions of the first type crossing the second region.
+     */
+    private boolean isChanged(Grid grid, Class<? extends Grid.Region> regionType1,
+            Grid.Region region1, Grid.Region region2, int index2) {
+        if (scan.isChanged(region1) || scan.isChanged(region2))
+            return true;
+        if (isDirectMode) {
+            for (int i3 = 0; i3 < 9; i3++) {
+                int index3 = LinkIndex.getRegionIndex(regionType1, i3);
+                if (LinkIndex.getCommonPositions(index3, index2) != 0
+                        && scan.isChanged(grid.getRegions(regionType1)[i3]))
+                    return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -31,6 +60,10 @@ public class Intersection implements IndirectHintProducer {
      * are crossing. For each such pair (p1, p2), check if all the potential
      * positions of a value in p1 are also in p2.
      * <p>
+     * The potential positions of the values are taken from the
+     * {@link LinkIndex} of the grid, and compared with the positions
+     * common to p1 and p2 using bit masks.
+     * <p>
      * Note: at least one of the two part type must be a
      * {@link Grid.Block 3x3 square}.
      * @param regionType1 the first part type
@@ -42,38 +75,32 @@ public class Intersection implements IndirectHintProducer {
         // Locking technique must rely on block region.
         assert (regionType1 == Grid.Block.class) != (regionType2 == Grid.Block.class);
 
+        LinkIndex index = grid.getLinkIndex();
+        Grid.Region[] regions1 = grid.getRegions(regionType1);
+        Grid.Region[] regions2 = grid.getRegions(regionType2);
         // Iterate on pairs of parts
         for (int i1 = 0; i1 < 9; i1++) {
+            int index1 = LinkIndex.getRegionIndex(regionType1, i1);
             for (int i2 = 0; i2 < 9; i2++) {
-                Grid.Region region1 = grid.getRegions(regionType1)[i1];
-                Grid.Region region2 = grid.getRegions(regionType2)[i2];
-                if (region1.crosses(region2)) {
-                    Set<Cell> region2Cells = region2.getCellSet();
+                int index2 = LinkIndex.getRegionIndex(regionType2, i2);
+                int common1 = LinkIndex.getCommonPositions(index1, index2);
+                if (common1 != 0 && isChanged(grid, regionType1, regions1[i1], regions2[i2], index2)) {
+                    int common2 = LinkIndex.getCommonPositions(index2, index1);
                     // Iterate on values
                     for (int value = 1; value <= 9; value++) {
-                        boolean isInCommonSet = true;
                         // Get the potential positions of the value in part1
-                        BitSet potentialPositions = region1.getPotentialPositions(value);
+                        int positions = index.getPositionMask(value, index1);
                         // Note: if cardinality == 1, this is Hidden Single in part1
-                        if (potentialPositions.cardinality() > 1) {
-                            // Test if all potential positions are also in part2
-                            for (int i = 0; i < 9; i++) {
-                                if (potentialPositions.get(i)) {
-                                    Cell cell = region1.getCell(i);
-                                    if (!region2Cells.contains(cell))
-                                        isInCommonSet = false;
-                                }
-                            }
-                            if (isInCommonSet) {
-                                if (isDirectMode) {
-                                    lookForFollowingHiddenSingles(grid, regionType1, accu, i1,
-                                            region1, region2, value);
-                                } else {
-                                    // Potential solution found
-                                    IndirectHint hint = createLockingHint(region1, region2, null, value);
-                                    if (hint.isWorth())
-                                        accu.add(hint);
-                                }
+                        // Test if all potential positions are also in part2
+                        if (Integer.bitCount(positions) > 1 && (positions & ~common1) == 0) {
+                            if (isDirectMode) {
+                                lookForFollowingHiddenSingles(grid, index, regionType1, accu, i1,
+                                        regions1[i1], regions2[i2], index2, common2, value);
+                            } else if ((index.getPositionMask(value, index2) & ~common2) != 0) {
+                                // Potential solution found, with removable potentials
+                                IndirectHint hint = createLockingHint(regions1[i1], regions2[i2], common2,
+                                        null, value);
+                                accu.add(hint);
                             }
                         }
                     } // for each value
@@ -82,31 +109,25 @@ public class Intersection implements IndirectHintProducer {
         }
     }
 
-    private <S extends Grid.Region> void lookForFollowingHiddenSingles(Grid grid,
+    private <S extends Grid.Region> void lookForFollowingHiddenSingles(Grid grid, LinkIndex index,
             Class<S> regionType1, HintsAccumulator accu, int i1,
-            Grid.Region region1, Grid.Region region2, int value) throws InterruptedException {
+            Grid.Region region1, Grid.Region region2, int index2, int common2, int value)
+            throws InterruptedException {
         // Look if the pointing / claiming induce a hidden single
-        for(int i3 = 0; i3 < 9; i3++) {
+        for (int i3 = 0; i3 < 9; i3++) {
             if (i3 != i1) {
-                Grid.Region region3 = grid.getRegions(regionType1)[i3];
-                if (region3.crosses(region2)) {
+                int index3 = LinkIndex.getRegionIndex(regionType1, i3);
+                int common3 = LinkIndex.getCommonPositions(index3, index2);
+                if (common3 != 0) {
                     // Region <> region1 but crosses region2
-                    Set<Cell> region2Cells = region2.getCellSet();
-                    BitSet potentialPositions3 = region3.getPotentialPositions(value);
-                    if (potentialPositions3.cardinality() > 1) {
-                        int nbRemainInRegion3 = 0;
-                        Cell hcell = null;
-                        for (int i = 0; i < 9; i++) {
-                            if (potentialPositions3.get(i)) {
-                                Cell cell = region3.getCell(i);
-                                if (!region2Cells.contains(cell)) { // This position is not removed
-                                    nbRemainInRegion3++;
-                                    hcell = cell;
-                                }
-                            }
-                        }
-                        if (nbRemainInRegion3 == 1) {
-                            IndirectHint hint = createLockingHint(region1, region2, hcell, value);
+                    int positions3 = index.getPositionMask(value, index3);
+                    if (Integer.bitCount(positions3) > 1) {
+                        // Positions that are not removed
+                        int remaining = positions3 & ~common3;
+                        if (Integer.bitCount(remaining) == 1) {
+                            Grid.Region region3 = grid.getRegions(regionType1)[i3];
+                            Cell hcell = region3.getCell(Integer.numberOfTrailingZeros(remaining));
+                            IndirectHint hint = createLockingHint(region1, region2, common2, hcell, value);
                             if (hint.isWorth())
                                 accu.add(hint);
                         }
@@ -116,7 +137,16 @@ public class Intersection implements IndirectHintProducer {
         }
     }
 
-    private IndirectHint createLockingHint(Grid.Region p1, Grid.Region p2, Cell hcell, int value) {
+    /**
+     * Create a pointing or claiming hint
+     * @param p1 the region in which the value is locked
+     * @param p2 the region in which the value can be removed
+     * @param common2 the mask of the positions of <tt>p2</tt> that are also in <tt>p1</tt>
+     * @param hcell the resulting hidden single in direct mode, else <tt>null</tt>
+     * @param value the value
+     */
+    private IndirectHint createLockingHint(Grid.Region p1, Grid.Region p2, int common2,
+            Cell hcell, int value) {
         // Build highlighted potentials
         Map<Cell,BitSet> cellPotentials = new HashMap<>();
         for (int i = 0; i < 9; i++) {
@@ -127,10 +157,9 @@ public class Intersection implements IndirectHintProducer {
         // Build removable potentials
         Map<Cell,BitSet> cellRemovablePotentials = new HashMap<>();
         List<Cell> highlightedCells = new ArrayList<>();
-        Set<Cell> p1Cells = p1.getCellSet();
         for (int i = 0; i < 9; i++) {
             Cell cell = p2.getCell(i);
-            if (!p1Cells.contains(cell)) {
+            if ((common2 & (1 << i)) == 0) {
                 if (cell.hasPotentialValue(value))
                     cellRemovablePotentials.put(cell, SingletonBitSet.create(value));
             } else if (cell.hasPotentialValue(value))
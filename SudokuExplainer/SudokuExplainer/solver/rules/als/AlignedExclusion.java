@@ -9,7 +9,12 @@ import SudokuExplainer.units.Grid;
 
 /**
  * Aligned Set Exclusion technique.
- * Very slow for degree >= 4 (if worth).
+ * <p>
+ * For each set of base cells, the combinations of their potential values are
+ * searched depth-first, using 10-bit masks of values. Partial combinations
+ * that are already locked by an excluder cell are pruned, and only the union
+ * of the allowed values of each base cell is recorded. The locked combinations
+ * are only enumerated to explain the hints that are found.
  */
 public class AlignedExclusion implements IndirectHintProducer {
 
@@ -21,8 +26,21 @@ public class AlignedExclusion implements IndirectHintProducer {
             "", "", "Pair", "Triple", "Quad", "Quint", "Sex", "Sept"
     };
 
+    // Search state for the current set of base cells
+    private final int[] cellMasks;
+    private final int[] sharingMasks;
+    private final int[] allowedMasks;
+    private final int[] combination;
+    private final int[] excluderMasks = new int[81];
+    private int countExcluders;
+
+
     public AlignedExclusion(int degree) {
         this.degree = degree;
+        this.cellMasks = new int[degree];
+        this.sharingMasks = new int[degree];
+        this.allowedMasks = new int[degree];
+        this.combination = new int[degree];
     }
 
     public void getHints(Grid grid, HintsAccumulator accu)
@@ -70,14 +88,31 @@ public class AlignedExclusion implements IndirectHintProducer {
         // continue the iteration on these remaining cells.
         //
         // First iterate on the first two cells
+        int[] potentialMasks = new int[81];
+        long[] excluders0 = new long[81]; // Excluding cells 0 to 63
+        long[] excluders1 = new long[81]; // Excluding cells 64 to 80
+        for (Cell cell : candidateList) {
+            int index = cell.getY() * 9 + cell.getX();
+            potentialMasks[index] = toMask(cell.getPotentialValues());
+            for (Cell excludingCell : cellExcluders.get(cell)) {
+                int excludingIndex = excludingCell.getY() * 9 + excludingCell.getX();
+                potentialMasks[excludingIndex] = toMask(excludingCell.getPotentialValues());
+                if (excludingIndex < 64)
+                    excluders0[index] |= 1L << excludingIndex;
+                else
+                    excluders1[index] |= 1L << (excludingIndex - 64);
+            }
+        }
         Permutations cellSetPerm2 = new Permutations(2, candidateList.size());
+        Permutations tailSetPerm = new Permutations(0, 0);
+        int[] indexes = new int[2];
+        int[] tindices = new int[degree - 2];
+        Cell[] tuple = new Cell[degree];
         while (cellSetPerm2.hasNext()) {
-            int[] indexes = cellSetPerm2.nextBitNums();
+            cellSetPerm2.nextBitNums(indexes);
             // Setup the first two cells
             Cell cell0 = candidateList.get(indexes[0]);
-            int card0 = cell0.getPotentialValues().cardinality();
             Cell cell1 = candidateList.get(indexes[1]);
-            int card1 = cell1.getPotentialValues().cardinality();
 
             // Create the twinArea: set of cells visible by one of the two first cells
             Collection<Cell> twinArea = new LinkedHashSet<>(cellExcluders.get(cell0));
@@ -92,157 +127,230 @@ public class AlignedExclusion implements IndirectHintProducer {
             if (twinArea.size() >= degree - 2) {
                 List<Cell> tailCells = new ArrayList<>(twinArea);
                 // Iterate on remaining cells using the twinArea
-                Permutations tailSetPerm = new Permutations(degree - 2, tailCells.size());
+                tailSetPerm.reset(degree - 2, tailCells.size());
                 while (tailSetPerm.hasNext()) {
-                    Cell[] cells = new Cell[degree];
-                    int[] cardinalities = new int[degree];
-                    // Copy the first two cells
-                    cells[0] = cell0;
-                    cardinalities[0] = card0;
-                    cells[1] = cell1;
-                    cardinalities[1] = card1;
-
+                    tuple[0] = cell0;
+                    tuple[1] = cell1;
                     // Add the tail cells
-                    int[] tindices = tailSetPerm.nextBitNums();
-                    assert tindices.length == degree - 2;
-                    for (int i = 0; i < tindices.length; i++) {
-                        cells[i + 2] = tailCells.get(tindices[i]);
-                        cardinalities[i + 2] = cells[i + 2].getPotentialValues().cardinality();
-                    }
+                    tailSetPerm.nextBitNums(tindices);
+                    for (int i = 0; i < tindices.length; i++)
+                        tuple[i + 2] = tailCells.get(tindices[i]);
 
-                    // Build the list of common excluding cells for the base cells 'cells'
-                    Set<Cell> commonExcluders = new LinkedHashSet<>();
-                    for (int i = 0; i < degree; i++) {
-                        Collection<Cell> excludingCells = cellExcluders.get(cells[i]);
-                        if (i == 0)
-                            commonExcluders.addAll(excludingCells);
-                        else
-                            commonExcluders.retainAll(excludingCells);
+                    // Build the set of common excluding cells for the base cells
+                    long common0 = -1L;
+                    long common1 = -1L;
+                    for (Cell cell : tuple) {
+                        int index = cell.getY() * 9 + cell.getX();
+                        common0 &= excluders0[index];
+                        common1 &= excluders1[index];
                     }
 
-                    if (commonExcluders.size() >= 2) {
-                        Map<Cell, BitSet> removablePotentials = new HashMap<>();
-
-                        int[] potIndexes = new int[degree];
-                        // Iterate on combinations of potentials across the base cells
-                        List<int[]> allowedPotentialCombinations = new ArrayList<>();
-                        Map<int[], Cell> lockedPotentialCombinations = new LinkedHashMap<>();
-                        boolean isFinished;
-                        do {
-                            // Get next combination of potential indexes
-                            int z = 0;
-                            boolean rollOver;
-                            do {
-                                if (potIndexes[z] == 0) {
-                                    rollOver = true;
-                                    potIndexes[z] = cardinalities[z] - 1;
-                                    z++;
-                                } else {
-                                    rollOver = false;
-                                    potIndexes[z]--;
-                                }
-                            } while (z < degree && rollOver);
-
-                            // Build the combination of potential values
-                            int[] potentials = new int[degree];
-                            for (int i = 0; i < degree; i++) {
-                                BitSet values = cells[i].getPotentialValues();
-                                int p = values.nextSetBit(0);
-                                for (int j = 0; j < potIndexes[i]; j++)
-                                    p = values.nextSetBit(p + 1);
-                                assert p >= 0;
-                                potentials[i] = p;
-                            }
-
-                            boolean isAllowed = true;
-                            Cell lockingCell = null;
-                            // Check if this potential combination is allowed, hidden single rule
-                            Permutations perm = new Permutations(2, degree);
-                            while (perm.hasNext()) {
-                                int[] cellIndexes = perm.nextBitNums();
-                                assert cellIndexes.length == 2;
-                                int p1 = potentials[cellIndexes[0]];
-                                int p2 = potentials[cellIndexes[1]];
-                                if (p1 == p2) {
-                                    /*
-                                     * Hidden Single: Using the same potential value for two cells of the
-                                     * set is only allowed if they do not share a region
-                                     */
-                                    Cell c1 = cells[cellIndexes[0]];
-                                    Cell c2 = cells[cellIndexes[1]];
-                                    if (c1.getHouseCells().contains(c2)) {
-                                        isAllowed = false;
-                                        break;
-                                    }
-                                }
-                            }
-
-                            // Check if this potential combination is allowed, using common excluder cells
-                            if (isAllowed) {
-                                for (Cell excludingCell : commonExcluders) {
-                                    BitSet values = (BitSet)excludingCell.getPotentialValues().clone();
-                                    for (int i = 0; i < degree; i++)
-                                        values.clear(potentials[i]);
-                                    if (values.isEmpty()) {
-                                        lockingCell = excludingCell;
-                                        isAllowed = false;
-                                        break;
-                                    }
-                                }
+                    if (Long.bitCount(common0) + Long.bitCount(common1) >= 2) {
+                        // Setup the search
+                        countExcluders = 0;
+                        for (long bits = common0; bits != 0; bits &= bits - 1)
+                            excluderMasks[countExcluders++] = potentialMasks[Long.numberOfTrailingZeros(bits)];
+                        for (long bits = common1; bits != 0; bits &= bits - 1)
+                            excluderMasks[countExcluders++] = potentialMasks[64 + Long.numberOfTrailingZeros(bits)];
+                        for (int i = 0; i < degree; i++) {
+                            Cell cell = tuple[i];
+                            cellMasks[i] = potentialMasks[cell.getY() * 9 + cell.getX()];
+                            allowedMasks[i] = 0;
+                            sharingMasks[i] = 0;
+                            for (int j = 0; j < i; j++) {
+                                if (isSharingRegion(tuple[j], cell))
+                                    sharingMasks[i] |= 1 << j;
                             }
+                        }
 
-                            // Store the combination in the appropriate structure
-                            if (isAllowed)
-                                allowedPotentialCombinations.add(potentials);
-                            else
-                                lockedPotentialCombinations.put(potentials, lockingCell);
-
-                            // Check if last combination of potentials from the base cells has been reached
-                            isFinished = true;
+                        if (!searchAllowed(0, 0)) {
+                            // Values that are not allowed in any combination can be excluded
+                            Map<Cell, BitSet> removablePotentials = new HashMap<>();
                             for (int i = 0; i < degree; i++) {
-                                if (potIndexes[i] != 0) {
-                                    isFinished = false;
-                                    break;
-                                }
-                            }
-                        } while (!isFinished);
-
-                        /*
-                         * For all potentials of all base cells, test if the
-                         * value is possible in at least one allowed combination
-                         */
-                        for (int i = 0; i < degree; i++) {
-                            Cell cell = cells[i];
-                            BitSet values = cell.getPotentialValues();
-                            for (int p = values.nextSetBit(0); p >= 0; p = values.nextSetBit(p + 1)) {
-                                boolean isValueAllowed = false;
-                                for (int[] combinations : allowedPotentialCombinations) {
-                                    if (combinations[i] == p) {
-                                        isValueAllowed = true; // At least one allowed combination permits this value
-                                        break;
+                                int removable = cellMasks[i] & ~allowedMasks[i];
+                                if (removable != 0) {
+                                    BitSet values = new BitSet(10);
+                                    for (int p = 1; p <= 9; p++) {
+                                        if ((removable & (1 << p)) != 0)
+                                            values.set(p);
                                     }
+                                    removablePotentials.put(tuple[i], values);
                                 }
-                                if (!isValueAllowed) {
-                                    // Yeah, value 'p' can be excluded from cell 'cell'
-                                    if (removablePotentials.containsKey(cell))
-                                        removablePotentials.get(cell).set(p);
-                                    else
-                                        removablePotentials.put(cell, SingletonBitSet.create(p));
-                                }
+                            }
+                            if (!removablePotentials.isEmpty()) {
+                                // Create hint
+                                Cell[] cells = tuple.clone();
+                                IndirectHint hint = new AlignedExclusionHint(this, removablePotentials, cells,
+                                        getLockedCombinations(cells, cellExcluders));
+                                accu.add(hint);
                             }
                         }
-
-                        // Create hint
-                        IndirectHint hint = new AlignedExclusionHint(this, removablePotentials, cells,
-                                lockedPotentialCombinations);
-                        if (hint.isWorth())
-                            accu.add(hint);
                     } // if enough common excluders
                 } // Iterate on cell permutations: tail cells
             }
         } // Iterate on cell permutations: first two cells
     }
 
+    /**
+     * Assign a value to the base cell at the given index, and recursively to
+     * the following ones, collecting the values of the allowed combinations
+     * in {@link #allowedMasks}.
+     * <p>
+     * A combination is not allowed if two cells sharing a region have the same
+     * value (hidden single rule), or if it contains all the potential values of
+     * a common excluder cell. The latter is checked on partial combinations,
+     * so that no completion of a locked combination is ever enumerated.
+     * @param index the index of the base cell
+     * @param combinationMask the values of the base cells before <tt>index</tt>
+     * @return <tt>true</tt> if all potential values of all base cells are known to be
+     * allowed, in which case the search is stopped
+     */
+    private boolean searchAllowed(int index, int combinationMask) {
+        int values = cellMasks[index];
+        // Hidden single rule
+        for (int j = 0; j < index; j++) {
+            if ((sharingMasks[index] & (1 << j)) != 0)
+                values &= ~(1 << combination[j]);
+        }
+        for (int value = 1; value <= 9; value++) {
+            if ((values & (1 << value)) == 0)
+                continue;
+            int mask = combinationMask | (1 << value);
+            // Excluder cells rule
+            boolean isLocked = false;
+            for (int k = 0; k < countExcluders; k++) {
+                if ((excluderMasks[k] & ~mask) == 0) {
+                    isLocked = true;
+                    break;
+                }
+            }
+            if (isLocked)
+                continue;
+            combination[index] = value;
+            if (index == degree - 1) {
+                boolean isComplete = true;
+                for (int i = 0; i < degree; i++) {
+                    allowedMasks[i] |= 1 << combination[i];
+                    if (allowedMasks[i] != cellMasks[i])
+                        isComplete = false;
+                }
+                if (isComplete)
+                    return true;
+            } else if (searchAllowed(index + 1, mask)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get all the combinations of potential values of the given base cells that are
+     * not allowed, with the excluder cell that locks them (or <tt>null</tt> if locked
+     * by the hidden single rule). Only used to explain a hint.
+     */
+    private Map<int[], Cell> getLockedCombinations(Cell[] cells,
+            Map<Cell, Collection<Cell>> cellExcluders) {
+        // Build the list of common excluding cells for the base cells 'cells'
+        Set<Cell> commonExcluders = new LinkedHashSet<>();
+        for (int i = 0; i < degree; i++) {
+            Collection<Cell> excludingCells = cellExcluders.get(cells[i]);
+            if (i == 0)
+                commonExcluders.addAll(excludingCells);
+            else
+                commonExcluders.retainAll(excludingCells);
+        }
+        int[] cardinalities = new int[degree];
+        for (int i = 0; i < degree; i++)
+            cardinalities[i] = cells[i].getPotentialValues().cardinality();
+
+        int[] potIndexes = new int[degree];
+        // Iterate on combinations of potentials across the base cells
+        Map<int[], Cell> lockedPotentialCombinations = new LinkedHashMap<>();
+        boolean isFinished;
+        do {
+            // Get next combination of potential indexes
+            int z = 0;
+            boolean rollOver;
+            do {
+                if (potIndexes[z] == 0) {
+                    rollOver = true;
+                    potIndexes[z] = cardinalities[z] - 1;
+                    z++;
+                } else {
+                    rollOver = false;
+                    potIndexes[z]--;
+                }
+            } while (z < degree && rollOver);
+
+            // Build the combination of potential values
+            int[] potentials = new int[degree];
+            for (int i = 0; i < degree; i++) {
+                BitSet values = cells[i].getPotentialValues();
+                int p = values.nextSetBit(0);
+                for (int j = 0; j < potIndexes[i]; j++)
+                    p = values.nextSetBit(p + 1);
+                assert p >= 0;
+                potentials[i] = p;
+            }
+
+            boolean isAllowed = true;
+            Cell lockingCell = null;
+            // Check if this potential combination is allowed, hidden single rule
+            for (int i = 0; i < degree && isAllowed; i++) {
+                for (int j = i + 1; j < degree; j++) {
+                    /*
+                     * Hidden Single: Using the same potential value for two cells of the
+                     * set is only allowed if they do not share a region
+                     */
+                    if (potentials[i] == potentials[j] && isSharingRegion(cells[i], cells[j])) {
+                        isAllowed = false;
+                        break;
+                    }
+                }
+            }
+
+            // Check if this potential combination is allowed, using common excluder cells
+            if (isAllowed) {
+                int potentialsMask = 0;
+                for (int i = 0; i < degree; i++)
+                    potentialsMask |= 1 << potentials[i];
+                for (Cell excludingCell : commonExcluders) {
+                    if ((toMask(excludingCell.getPotentialValues()) & ~potentialsMask) == 0) {
+                        lockingCell = excludingCell;
+                        isAllowed = false;
+                        break;
+                    }
+                }
+            }
+
+            // Store the combination
+            if (!isAllowed)
+                lockedPotentialCombinations.put(potentials, lockingCell);
+
+            // Check if last combination of potentials from the base cells has been reached
+            isFinished = true;
+            for (int i = 0; i < degree; i++) {
+                if (potIndexes[i] != 0) {
+                    isFinished = false;
+                    break;
+                }
+            }
+        } while (!isFinished);
+        return lockedPotentialCombinations;
+    }
+
+    private static boolean isSharingRegion(Cell c1, Cell c2) {
+        return c1.getX() == c2.getX() || c1.getY() == c2.getY()
+                || c1.getBlockNum() == c2.getBlockNum();
+    }
+
+    private static int toMask(BitSet values) {
+        int result = 0;
+        for (int p = values.nextSetBit(0); p >= 0; p = values.nextSetBit(p + 1))
+            result |= 1 << p;
+        return result;
+    }
+
     @Override
     public String toString() {
         return "Aligned " + names[degree] + " Exclusion";
@@ -55,8 +55,9 @@ public class AlignedPairExclusion extends AlignedExclusion {
          */
         // First iterate on the first two cells
         Permutations cellSetPerm2 = new Permutations(2, cellExcluders.size());
+        int[] indexes = new int[2];
         while (cellSetPerm2.hasNext()) {
-            int[] indexes = cellSetPerm2.nextBitNums();
+            cellSetPerm2.nextBitNums(indexes);
             // Setup the first two cells
             Cell[] cells = new Cell[2];
             int[] cardinalities = new int[2];
@@ -76,6 +77,7 @@ public class AlignedPairExclusion extends AlignedExclusion {
                 Map<int[], Cell> lockedPotentialCombinations = new LinkedHashMap<>();
                 BitSet v0 = cells[0].getPotentialValues();
                 BitSet v1 = cells[1].getPotentialValues();
+                boolean isSharingRegion = cells[0].getHouseCells().contains(cells[1]);
 
                 // Iterate on combinations of potentials across the base cells
                 for (int pt0 = v0.nextSetBit(0); pt0 >= 0; pt0 = v0.nextSetBit(pt0 + 1)) {
@@ -87,7 +89,7 @@ public class AlignedPairExclusion extends AlignedExclusion {
                         Cell lockingCell = null;
 
                         // Check if this potential combination is allowed, hidden single rule
-                        if (pt0 == pt1 && cells[0].getHouseCells().contains(cells[1]))
+                        if (pt0 == pt1 && isSharingRegion)
                             isAllowed = false;
 
                         // Check if this potential combination is allowed, using common
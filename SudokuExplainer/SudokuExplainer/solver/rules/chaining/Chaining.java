@@ -22,6 +22,7 @@ public class Chaining implements IndirectHintProducer {
     private Grid saveGrid = new Grid();
     private List<IndirectHintProducer> otherRules;
     private Grid lastGrid = null;
+    private long lastChangeCount;
     private Collection<ChainingHint> lastHints = null;
 
 
@@ -719,6 +720,7 @@ public class Chaining implements IndirectHintProducer {
             List<Potential> pendingOn = new LinkedList<>(toOn);
             List<Potential> pendingOff = new LinkedList<>(toOff);
             while (!pendingOn.isEmpty() || !pendingOff.isEmpty()) {
+                Solver.checkCancelled();
                 if (!pendingOn.isEmpty()) {
                     Potential p = pendingOn.remove(0);
                     Set<Potential> makeOff = getOnToOff(grid, p, !isNishioChaining);
@@ -1024,13 +1026,14 @@ public class Chaining implements IndirectHintProducer {
     }
 
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
-        if (grid.equals(lastGrid)) {
+        // The hints refer to the cells of the grid: only reuse them for the same grid
+        if (grid == lastGrid && grid.getChangeCount() == lastChangeCount) {
             getPreviousHints(accu);
             return;
         }
         List<ChainingHint> result = getHintList(grid);
-        lastGrid = new Grid();
-        grid.copyTo(lastGrid);
+        lastGrid = grid;
+        lastChangeCount = grid.getChangeCount();
         // This filters hints that are equal:
         lastHints = new LinkedHashSet<>(result);
         for (IndirectHint hint : lastHints)
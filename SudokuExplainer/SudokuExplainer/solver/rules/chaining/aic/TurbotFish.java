@@ -42,10 +42,15 @@ public class TurbotFish implements IndirectHintProducer {
     private void getHints(Grid grid, HintsAccumulator accu,
             Class<? extends Grid.Region> base, Class<? extends Grid.Region> cover)
             throws InterruptedException {
+        LinkIndex index = grid.getLinkIndex();
+        Grid.Region[] baseRegions = grid.getRegions(base);
+        Grid.Region[] coverRegions = grid.getRegions(cover);
         for (int digit = 1; digit <= 9; digit++) {
-            Grid.Region[] baseRegions = grid.getRegions(base);
-            Grid.Region[] coverRegions = grid.getRegions(cover);
             for (int i1 = 0; i1 < baseRegions.length; i1++) {
+                int baseIndex = LinkIndex.getRegionIndex(base, i1);
+                if (!index.isConjugatePair(digit, baseIndex))
+                    continue;
+                int basePositions = index.getPositionMask(digit, baseIndex);
                 for (int i2 = 0; i2 < coverRegions.length; i2++) {
                     // For each set in sets
                     Grid.Region baseRegion = baseRegions[i1];
@@ -55,19 +60,18 @@ public class TurbotFish implements IndirectHintProducer {
                     if (baseRegion.getClass() == coverRegion.getClass() && i1 == i2)
                         continue;
 
-                    BitSet baseRegionPotentials = baseRegion.getPotentialPositions(digit);
-                    BitSet coverRegionPotentials = coverRegion.getPotentialPositions(digit);
-                    if (baseRegionPotentials.cardinality() == 2 && coverRegionPotentials.cardinality() == 2) {
+                    int coverIndex = LinkIndex.getRegionIndex(cover, i2);
+                    if (index.isConjugatePair(digit, coverIndex)) {
                         // Strong links found (Conjugate pairs found)
                         // Check whether positions may in the same region or not (form a weak link)
-                        int p1, p2;
+                        int coverPositions = index.getPositionMask(digit, coverIndex);
                         Cell[] cells = new Cell[] {
                                 // region 1
-                                baseRegion.getCell(p1 = baseRegionPotentials.nextSetBit(0)),
-                                baseRegion.getCell(baseRegionPotentials.nextSetBit(p1 + 1)),
+                                baseRegion.getCell(Integer.numberOfTrailingZeros(basePositions)),
+                                baseRegion.getCell(31 - Integer.numberOfLeadingZeros(basePositions)),
                                 // region 2
-                                coverRegion.getCell(p2 = coverRegionPotentials.nextSetBit(0)),
-                                coverRegion.getCell(coverRegionPotentials.nextSetBit(p2 + 1))
+                                coverRegion.getCell(Integer.numberOfTrailingZeros(coverPositions)),
+                                coverRegion.getCell(31 - Integer.numberOfLeadingZeros(coverPositions))
                         };
 
                         // Cells cannot be same
@@ -100,7 +104,7 @@ public class TurbotFish implements IndirectHintProducer {
                                 }
                             } // for int j = 0..2
                         } // for int i = 0..2
-                    } // if baseRegionPotentials.cardinality() == 2 && coverRegionPotentials.cardinality() == 2
+                    } // if conjugate pair in cover region
                 }
             }
         }
@@ -11,7 +11,14 @@ import SudokuExplainer.units.Grid;
  */
 public class HiddenSingle implements DirectHintProducer {
 
+    private final IncrementalScan scan = new IncrementalScan();
+
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
+        accu = scan.start(grid, accu);
+        if (scan.isUnchanged()) {
+            scan.finish();
+            return;
+        }
         // First alone cells (last empty cell in a region)
         getHints(grid, Grid.Block.class, accu, true);
         getHints(grid, Grid.Column.class, accu, true);
@@ -20,6 +27,7 @@ public class HiddenSingle implements DirectHintProducer {
         getHints(grid, Grid.Block.class, accu, false);
         getHints(grid, Grid.Column.class, accu, false);
         getHints(grid, Grid.Row.class, accu, false);
+        scan.finish();
     }
 
     /**
@@ -32,6 +40,9 @@ public class HiddenSingle implements DirectHintProducer {
         Grid.Region[] regions = grid.getRegions(regionType);
         // Iterate on parts
         for (Grid.Region region : regions) {
+            // Unchanged regions cannot contain new hints
+            if (!scan.isChanged(region))
+                continue;
             // Iterate on values
             for (int value = 1; value <= 9; value++) {
                 // Get value's potential position
@@ -20,6 +20,8 @@ public class HiddenSubset implements IndirectHintProducer {
 
     private final int degree;
     private final boolean isDirect;
+    private final IncrementalScan scan = new IncrementalScan();
+    private final SubsetMasks masks = new SubsetMasks();
 
 
     public HiddenSubset(int degree, boolean isDirect) {
@@ -29,9 +31,11 @@ public class HiddenSubset implements IndirectHintProducer {
     }
 
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
+        accu = scan.start(grid, accu);
         getHints(grid, Grid.Block.class, accu);
         getHints(grid, Grid.Column.class, accu);
         getHints(grid, Grid.Row.class, accu);
+        scan.finish();
     }
 
     /**
@@ -43,30 +47,38 @@ public class HiddenSubset implements IndirectHintProducer {
     private <T extends Grid.Region> void getHints(Grid grid, Class<T> regionType,
             HintsAccumulator accu) throws InterruptedException {
         Grid.Region[] regions = grid.getRegions(regionType);
+        int[] tuples = Combinations.getMasks(degree);
+        int[][] tupleIndexes = Combinations.getIndexes(degree);
         // Iterate on parts
         for (Grid.Region region : regions) {
+            // Unchanged regions cannot contain new hints
+            if (!scan.isChanged(region))
+                continue;
             int nbEmptyCells = region.getEmptyCellCount();
             if (nbEmptyCells > degree * 2 || (isDirect && nbEmptyCells > degree)) {
-                Permutations perm = new Permutations(degree, 9);
+                masks.build(region);
+                // Only values with 2 to degree potential positions can be part of the tuple
+                int candidates = SubsetMasks.getCandidates(masks.positionMasks, degree);
+                if (Integer.bitCount(candidates) < degree)
+                    continue;
                 // Iterate on tuple of values
-                while (perm.hasNext()) {
-                    int[] values = perm.nextBitNums();
-                    assert values.length == degree;
-
-                    // Build the value tuple
-                    for (int i = 0; i < values.length; i++)
-                        values[i] += 1; // 0..8 -> 1..9
-
-                    // Build potential positions for each value of the tuple
-                    BitSet[] potentialIndexes = new BitSet[degree];
-                    for (int i = 0; i < degree; i++)
-                        potentialIndexes[i] = region.getPotentialPositions(values[i]);
+                for (int t = 0; t < tuples.length; t++) {
+                    if ((tuples[t] & ~candidates) != 0)
+                        continue;
+                    int[] indexes = tupleIndexes[t];
 
                     // Look for a common tuple of potential positions, with same degree
-                    BitSet commonPotentialPositions =
-                        CommonTuples.searchCommonTuple(potentialIndexes, degree);
-                    if (commonPotentialPositions != null) {
+                    int commonMask = 0;
+                    for (int index : indexes)
+                        commonMask |= masks.positionMasks[index];
+                    if (Integer.bitCount(commonMask) == degree) {
+                        // Build the value tuple
+                        int[] values = new int[degree];
+                        for (int i = 0; i < values.length; i++)
+                            values[i] = indexes[i] + 1; // 0..8 -> 1..9
+
                         // Hint found
+                        BitSet commonPotentialPositions = SubsetMasks.toBitSet(commonMask, 0);
                         IndirectHint hint = createHiddenSetHint(region, values, commonPotentialPositions);
                         if (hint != null && hint.isWorth())
                             accu.add(hint);
@@ -15,6 +15,8 @@ import SudokuExplainer.units.Grid;
 public class NakedSubset implements IndirectHintProducer {
 
     private int degree;
+    private final IncrementalScan scan = new IncrementalScan();
+    private final SubsetMasks masks = new SubsetMasks();
 
     public NakedSubset(int degree) {
         assert degree > 1 && degree <= 4;
@@ -22,9 +24,11 @@ public class NakedSubset implements IndirectHintProducer {
     }
 
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
+        accu = scan.start(grid, accu);
         getHints(grid, Grid.Block.class, accu);
         getHints(grid, Grid.Column.class, accu);
         getHints(grid, Grid.Row.class, accu);
+        scan.finish();
     }
 
     /**
@@ -34,30 +38,32 @@ public class NakedSubset implements IndirectHintProducer {
     private <T extends Grid.Region> void getHints(Grid grid, Class<T> regionType,
             HintsAccumulator accu) throws InterruptedException {
         Grid.Region[] regions = grid.getRegions(regionType);
+        int[] tuples = Combinations.getMasks(degree);
+        int[][] tupleIndexes = Combinations.getIndexes(degree);
         // Iterate on parts
         for (Grid.Region region : regions) {
-            if (region.getEmptyCellCount() >= degree * 2) {
-                Permutations perm = new Permutations(degree, 9);
+            if (scan.isChanged(region) && region.getEmptyCellCount() >= degree * 2) {
+                masks.build(region);
+                // Only cells with 2 to degree potential values can be part of the tuple
+                int candidates = SubsetMasks.getCandidates(masks.cellMasks, degree);
+                if (Integer.bitCount(candidates) < degree)
+                    continue;
                 // Iterate on tuples of positions
-                while (perm.hasNext()) {
-                    int[] indexes = perm.nextBitNums();
-                    assert indexes.length == degree;
-
-                    // Build the cell tuple
-                    Cell[] cells = new Cell[degree];
-                    for (int i = 0; i < cells.length; i++)
-                        cells[i] = region.getCell(indexes[i]);
-
-                    // Build potential values for each position of the tuple
-                    BitSet[] potentialValues = new BitSet[degree];
-                    for (int i = 0; i < degree; i++)
-                        potentialValues[i] = cells[i].getPotentialValues();
+                for (int t = 0; t < tuples.length; t++) {
+                    if ((tuples[t] & ~candidates) != 0)
+                        continue;
+                    int[] indexes = tupleIndexes[t];
 
                     // Look for a common tuple of potential values, with same degree
-                    BitSet commonPotentialValues = 
-                        CommonTuples.searchCommonTuple(potentialValues, degree);
-                    if (commonPotentialValues != null) {
+                    int commonMask = 0;
+                    for (int index : indexes)
+                        commonMask |= masks.cellMasks[index];
+                    if (Integer.bitCount(commonMask) == degree) {
                         // Potential hint found
+                        Cell[] cells = new Cell[degree];
+                        for (int i = 0; i < cells.length; i++)
+                            cells[i] = region.getCell(indexes[i]);
+                        BitSet commonPotentialValues = SubsetMasks.toBitSet(commonMask, 1);
                         IndirectHint hint = createValueUniquenessHint(region, cells, commonPotentialValues);
                         if (hint.isWorth())
                             accu.add(hint);
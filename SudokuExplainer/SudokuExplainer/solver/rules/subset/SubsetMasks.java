@@ -0,0 +1,74 @@
+package SudokuExplainer.solver.rules.subset;
+
+import java.util.*;
+
+import SudokuExplainer.units.Cell;
+import SudokuExplainer.units.Grid;
+
+/**
+ * 9-bit masks of a region used by the naked and hidden subset searches,
+ * built in a single pass over the cells of the region.
+ */
+class SubsetMasks {
+
+    /**
+     * Bit <tt>value - 1</tt> of <tt>cellMasks[index]</tt> is set if the cell at
+     * the given index of the region has the given potential value
+     */
+    final int[] cellMasks = new int[9];
+
+    /**
+     * Bit <tt>index</tt> of <tt>positionMasks[value - 1]</tt> is set if the cell at
+     * the given index of the region has the given potential value
+     */
+    final int[] positionMasks = new int[9];
+
+
+    void build(Grid.Region region) {
+        Arrays.fill(positionMasks, 0);
+        for (int index = 0; index < 9; index++) {
+            Cell cell = region.getCell(index);
+            BitSet potentials = cell.getPotentialValues();
+            int mask = 0;
+            for (int value = potentials.nextSetBit(1); value >= 0; value = potentials.nextSetBit(value + 1)) {
+                mask |= 1 << (value - 1);
+                positionMasks[value - 1] |= 1 << index;
+            }
+            cellMasks[index] = mask;
+        }
+    }
+
+    /**
+     * Get the elements (cells or values) that can be part of a subset
+     * of the given degree, according to their masks.
+     * @param masks the masks of the elements
+     * @param degree the degree of the subset
+     * @return the mask of the elements having between 2 and <tt>degree</tt>
+     * bits set
+     */
+    static int getCandidates(int[] masks, int degree) {
+        int result = 0;
+        for (int i = 0; i < 9; i++) {
+            int count = Integer.bitCount(masks[i]);
+            if (count > 1 && count <= degree)
+                result |= 1 << i;
+        }
+        return result;
+    }
+
+    /**
+     * Convert a 9-bit mask to a bit set
+     * @param mask the mask
+     * @param offset the bit number of the bit set corresponding to bit 0 of the mask
+     * @return the bit set
+     */
+    static BitSet toBitSet(int mask, int offset) {
+        BitSet result = new BitSet(10);
+        for (int i = 0; i < 9; i++) {
+            if ((mask & (1 << i)) != 0)
+                result.set(i + offset);
+        }
+        return result;
+    }
+
+}
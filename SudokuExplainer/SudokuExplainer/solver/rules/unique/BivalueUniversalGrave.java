@@ -6,6 +6,7 @@ import SudokuExplainer.solver.*;
 import SudokuExplainer.tools.*;
 import SudokuExplainer.units.Cell;
 import SudokuExplainer.units.Grid;
+import SudokuExplainer.units.LinkIndex;
 
 
 /**
@@ -14,90 +15,145 @@ import SudokuExplainer.units.Grid;
  */
 public class BivalueUniversalGrave implements IndirectHintProducer {
 
-    private final Grid temp = new Grid();
+    /*
+     * The peers of each cell, as 81-bit sets (bits 0-63 and 64-80)
+     */
+    private static final long[] PEERS_LOW = new long[81];
+    private static final long[] PEERS_HIGH = new long[81];
+
+    static {
+        for (int index = 0; index < 81; index++) {
+            for (int peer : LinkIndex.getPeers(index)) {
+                if (peer < 64)
+                    PEERS_LOW[index] |= 1L << peer;
+                else
+                    PEERS_HIGH[index] |= 1L << (peer - 64);
+            }
+        }
+    }
+
+    private final int[] bugValues = new int[81];
+    private final int[] bugCells = new int[81];
 
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
-        grid.copyTo(temp);
-        List<Cell> bugCells = new ArrayList<>();
-        Map<Cell, BitSet> bugValues = new HashMap<>();
-        BitSet allBugValues = new BitSet(10);
-        Set<Cell> commonCells = null;
-        for (Class<? extends Grid.Region> regionType : grid.getRegionTypes()) {
-            Grid.Region[] regions = grid.getRegions(regionType);
-            for (Grid.Region region : regions) {
-                for (int value = 1; value <= 9; value++) {
-                    // Possible positions of a value in a region (row/column/block):
-                    BitSet positions = region.getPotentialPositions(value);
-                    int cardinality = positions.cardinality();
-                    if (cardinality != 0 && cardinality != 2) {
-                        // The value has not zero or two positions in the region
-                        // Look for bug cells
-                        List<Cell> newBugCells = new ArrayList<>();
-                        for (int index = positions.nextSetBit(0); index >= 0;
-                             index = positions.nextSetBit(index + 1)) {
-                            Cell cell = region.getCell(index);
-                            int cellCardinality = cell.getPotentialValues().cardinality();
-                            if (cellCardinality >= 3)
-                                newBugCells.add(cell);
+        LinkIndex index = grid.getLinkIndex();
+        // Empty cells with less than two potential values cannot be part of a BUG
+        for (int cell = 0; cell < 81; cell++) {
+            if (Integer.bitCount(index.getPotentialMask(cell)) < 2
+                    && grid.getCell(cell % 9, cell / 9).isEmpty())
+                return;
+        }
+        Arrays.fill(bugValues, 0);
+        int bugCount = 0;
+        int allBugValues = 0;
+        boolean hasCommonCells = false;
+        long commonLow = 0, commonHigh = 0; // Cells sharing a region with all bug cells
+        long bugLow = 0, bugHigh = 0;
+        for (int region = 0; region < 27; region++) {
+            for (int value = 1; value <= 9; value++) {
+                // Possible positions of a value in a region (block/row/column):
+                int positions = index.getPositionMask(value, region);
+                int cardinality = Integer.bitCount(positions);
+                if (cardinality != 0 && cardinality != 2) {
+                    // The value has not zero or two positions in the region
+                    // Look for bug cells
+                    int newBugCell = -1;
+                    int newBugCount = 0;
+                    for (int position = 0; position < 9; position++) {
+                        if ((positions & (1 << position)) != 0) {
+                            int cell = LinkIndex.getCellIndex(region, position);
+                            if (Integer.bitCount(index.getPotentialMask(cell)) >= 3) {
+                                newBugCell = cell;
+                                newBugCount++;
+                            }
                         }
-                        /*
-                         * If there are two or more positions falling in a bug cell, we cannot
-                         * decide which one is the buggy one. Just do nothing because another
-                         * region will capture the correct cell.
-                         */
-                        if (newBugCells.size() == 1) {
-                            // A new BUG cell has been found (BUG value = 'value')
-                            Cell cell = newBugCells.get(0);
-                            if (!bugCells.contains(cell))
-                                bugCells.add(cell);
-                            if (!bugValues.containsKey(cell))
-                                bugValues.put(cell, new BitSet(10));
-                            bugValues.get(cell).set(value);
-                            allBugValues.set(value);
-                            Cell twin = temp.getCell(cell.getX(), cell.getY());
-                            twin.removePotentialValue(value);
-                            if (commonCells == null)
-                                commonCells = new LinkedHashSet<>(cell.getHouseCells());
+                    }
+                    /*
+                     * If there are two or more positions falling in a bug cell, we cannot
+                     * decide which one is the buggy one. Just do nothing because another
+                     * region will capture the correct cell.
+                     */
+                    if (newBugCount == 1) {
+                        // A new BUG cell has been found (BUG value = 'value')
+                        int cell = newBugCell;
+                        if (bugValues[cell] == 0) {
+                            bugCells[bugCount++] = cell;
+                            if (cell < 64)
+                                bugLow |= 1L << cell;
                             else
-                                commonCells.retainAll(cell.getHouseCells());
-                            commonCells.removeAll(bugCells);
-                            if (bugCells.size() > 1 && allBugValues.cardinality() > 1
-                                    && commonCells.isEmpty())
-                                return; // None of type 1, 2 or 3
+                                bugHigh |= 1L << (cell - 64);
                         }
-                        if (newBugCells.isEmpty())
-                            // A value appear more than twice, but no cell has more
-                            // than two values. => This is not a BUG pattern.
-                            return;
+                        bugValues[cell] |= 1 << (value - 1);
+                        allBugValues |= 1 << (value - 1);
+                        if (!hasCommonCells) {
+                            commonLow = PEERS_LOW[cell];
+                            commonHigh = PEERS_HIGH[cell];
+                            hasCommonCells = true;
+                        } else {
+                            commonLow &= PEERS_LOW[cell];
+                            commonHigh &= PEERS_HIGH[cell];
+                        }
+                        commonLow &= ~bugLow;
+                        commonHigh &= ~bugHigh;
+                        if (bugCount > 1 && Integer.bitCount(allBugValues) > 1
+                                && commonLow == 0 && commonHigh == 0)
+                            return; // None of type 1, 2 or 3
                     }
-                } // for value
-            } // for i
-        } // for regionType
+                    if (newBugCount == 0)
+                        // A value appear more than twice, but no cell has more
+                        // than two values. => This is not a BUG pattern.
+                        return;
+                }
+            } // for value
+        } // for region
 
         // When bug values have been removed, all remaining empty cells must have
         // exactly two potential values. Check it
-        for (int y = 0; y < 9; y++) {
-            for (int x = 0; x < 9; x++) {
-                Cell cell = temp.getCell(x, y);
-                if (cell.getValue() == 0 && cell.getPotentialValues().cardinality() != 2)
-                    return; // Not a BUG
-            }
+        for (int cell = 0; cell < 81; cell++) {
+            int mask = index.getPotentialMask(cell) & ~bugValues[cell];
+            if (Integer.bitCount(mask) != 2 && grid.getCell(cell % 9, cell / 9).isEmpty())
+                return; // Not a BUG
         }
         // When bug values have been removed, all remaining candidates must have
         // two positions in each region
-        for (Class<? extends Grid.Region> regionType : temp.getRegionTypes()) {
-            Grid.Region[] regions = temp.getRegions(regionType);
-            for (Grid.Region region : regions) {
-                for (int value = 1; value <= 9; value++) {
-                    // Possible positions of a value in a region (row/column/block):
-                    BitSet positions = region.getPotentialPositions(value);
-                    int cardinality = positions.cardinality();
-                    if (cardinality != 0 && cardinality != 2)
-                        return; // Not a BUG
+        for (int region = 0; region < 27; region++) {
+            for (int value = 1; value <= 9; value++) {
+                int positions = index.getPositionMask(value, region);
+                for (int position = 0; position < 9; position++) {
+                    int cell = LinkIndex.getCellIndex(region, position);
+                    if ((bugValues[cell] & (1 << (value - 1))) != 0)
+                        positions &= ~(1 << position);
                 }
+                int cardinality = Integer.bitCount(positions);
+                if (cardinality != 0 && cardinality != 2)
+                    return; // Not a BUG
+            }
+        }
+
+        // Yeah, a BUG pattern has been found. Build the hints
+        List<Cell> bugCellList = new ArrayList<>();
+        Map<Cell, BitSet> bugValueMap = new HashMap<>();
+        for (int i = 0; i < bugCount; i++) {
+            Cell cell = grid.getCell(bugCells[i] % 9, bugCells[i] / 9);
+            bugCellList.add(cell);
+            bugValueMap.put(cell, toBitSet(bugValues[bugCells[i]]));
+        }
+        Set<Cell> commonCells = null;
+        if (hasCommonCells) {
+            // Keep the order of the house cells of the first bug cell
+            commonCells = new LinkedHashSet<>();
+            for (int cell : LinkIndex.getPeers(bugCells[0])) {
+                long bit = (cell < 64 ? commonLow >>> cell : commonHigh >>> (cell - 64));
+                if ((bit & 1L) != 0)
+                    commonCells.add(grid.getCell(cell % 9, cell / 9));
             }
         }
-        
+        addHints(grid, accu, bugCellList, bugValueMap, toBitSet(allBugValues), commonCells);
+    }
+
+    private void addHints(Grid grid, HintsAccumulator accu, List<Cell> bugCells,
+            Map<Cell, BitSet> bugValues, BitSet allBugValues, Set<Cell> commonCells)
+            throws InterruptedException {
         if (bugCells.size() == 1) {
             // Yeah, potential BUG type-1 pattern found
             addBug1Hint(accu, bugCells, allBugValues);
@@ -116,6 +172,15 @@ public class BivalueUniversalGrave implements IndirectHintProducer {
         }
     }
 
+    private static BitSet toBitSet(int mask) {
+        BitSet result = new BitSet(10);
+        for (int value = 1; value <= 9; value++) {
+            if ((mask & (1 << (value - 1))) != 0)
+                result.set(value);
+        }
+        return result;
+    }
+
     private void addBug1Hint(HintsAccumulator accu, List<Cell> bugCells, BitSet extraValues) throws InterruptedException {
         Cell bugCell = bugCells.get(0);
         Map<Cell, BitSet> removablePotentials = new HashMap<>();
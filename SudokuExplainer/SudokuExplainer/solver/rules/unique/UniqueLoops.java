@@ -12,11 +12,24 @@ import SudokuExplainer.units.*;
  */
 public class UniqueLoops implements IndirectHintProducer {
 
-    private Grid lastGrid = new Grid();
+    /**
+     * Maximal number of cells of a loop. Each cell of a loop visits three regions, and
+     * each region is visited by zero or two cells: no loop can have more than 18 cells.
+     */
+    private static final int MAX_LOOP_LENGTH = 18;
+
+    private Grid lastGrid = null;
+    private long lastChangeCount;
     private List<UniqueLoopHint> lastResult = null;
 
+    private final int[] loop = new int[MAX_LOOP_LENGTH];
+    private final boolean[] isOnLoop = new boolean[81];
+    private LinkIndex index;
+    private int loopValues;
+
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
-        List<UniqueLoopHint> hints = grid.equals(lastGrid) ? lastResult : getHints(grid);
+        boolean isUnchanged = (grid == lastGrid && grid.getChangeCount() == lastChangeCount);
+        List<UniqueLoopHint> hints = isUnchanged ? lastResult : getHints(grid);
         // Sort the result
         hints.sort((h1, h2) -> {
             double d1 = h1.getDifficulty();
@@ -25,7 +38,8 @@ public class UniqueLoops implements IndirectHintProducer {
             else if (d1 > d2) return 1;
             else return h1.getType() - h2.getType();
         });
-        grid.copyTo(lastGrid);
+        lastGrid = grid;
+        lastChangeCount = grid.getChangeCount();
         lastResult = hints;
         for (UniqueLoopHint hint : hints)
             accu.add(hint);
@@ -33,74 +47,70 @@ public class UniqueLoops implements IndirectHintProducer {
 
     private List<UniqueLoopHint> getHints(Grid grid) {
         List<UniqueLoopHint> result = new ArrayList<>();
-        for (int y = 0; y < 9; y++) {
-            for (int x = 0; x < 9; x++) {
-                Cell cell = grid.getCell(x, y);
-                BitSet potentials = cell.getPotentialValues();
-                if (potentials.cardinality() == 2) {
-                    int v1 = potentials.nextSetBit(0);
-                    int v2 = potentials.nextSetBit(v1 + 1);
-                    assert v1 > 0 && v2 > 0;
-                    List<Cell> tempLoop = new ArrayList<>();
-                    Collection<List<Cell>> results = new ArrayList<>();
-                    checkForLoops(grid, cell, v1, v2, tempLoop,
-                            2, new BitSet(10), null, results);
-                    for (List<Cell> loop : results) {
-                        // Potential loop found. Check validity
-                        if (isValidLoop(grid, loop)) {
-                            // This is a unique loop. Get cells with more than 2 potentials
-                            List<Cell> extraCells = new ArrayList<>(2);
-                            for (Cell loopCell : loop) {
-                                if (loopCell.getPotentialValues().cardinality() > 2)
-                                    extraCells.add(loopCell);
-                            }
-                            if (extraCells.size() == 1) {
-                                // Try a type-1 hint
-                                UniqueLoopHint hint = createType1Hint(loop, extraCells.get(0), v1, v2);
-                                if (!result.contains(hint) && hint.isWorth())
-                                    result.add(hint);
-                            } else if (extraCells.size() > 2) {
-                                // Only type 2 is possible
-                                BitSet extraValues = new BitSet(10);
-                                for (Cell c : extraCells)
-                                    extraValues.or(c.getPotentialValues());
-                                extraValues.clear(v1);
-                                extraValues.clear(v2);
-                                assert extraValues.cardinality() == 1;
-                                UniqueLoopHint hint = createType2Hint(grid, loop, extraCells, v1, v2);
-                                if (!result.contains(hint) && hint.isWorth())
-                                    result.add(hint);
-                            } else
-                                if (extraCells.size() == 2) {
-                                Cell r1 = extraCells.get(0);
-                                Cell r2 = extraCells.get(1);
-                                BitSet rPotentials = (BitSet)r1.getPotentialValues().clone();
-                                rPotentials.or(r2.getPotentialValues());
-                                rPotentials.clear(v1);
-                                rPotentials.clear(v2);
-                                if (rPotentials.cardinality() == 1) {
-                                    // Try type 2 hint
-                                    UniqueLoopHint hint = createType2Hint(grid, loop, extraCells, v1, v2);
-                                    if (!result.contains(hint) && hint.isWorth())
-                                        result.add(hint);
-                                } else if (rPotentials.cardinality() >= 2) {
-                                    // Try type 3 hint
-                                    Collection<UniqueLoopHint> hints = createType3Hints(grid, loop, r1, r2, v1, v2);
-                                    for (UniqueLoopHint hint : hints) {
-                                        if (!result.contains(hint) && hint.isWorth())
-                                            result.add(hint);
-                                    }
-                                }
-                                // Try type 4 hint
-                                UniqueLoopHint hint = createType4Hint(grid, loop, r1, r2, v1, v2);
-                                if (hint != null && !result.contains(hint) && hint.isWorth())
-                                    result.add(hint);
-                            } else {
-                                // Huh ? 0 rescue cell ? Sudoku has two solutions !!
-                                // Do nothing (this is not our business)
-                            }
+        index = grid.getLinkIndex();
+        for (int i = 0; i < index.getBivalueCount(); i++) {
+            int cellIndex = index.getBivalueCell(i);
+            int potentials = index.getPotentialMask(cellIndex);
+            int v1 = Integer.numberOfTrailingZeros(potentials) + 1;
+            int v2 = 32 - Integer.numberOfLeadingZeros(potentials);
+            assert v1 > 0 && v2 > 0;
+            Collection<List<Cell>> results = new ArrayList<>();
+            loopValues = potentials;
+            loop[0] = cellIndex;
+            isOnLoop[cellIndex] = true;
+            checkForLoops(grid, 1, 2, 0, getRegions(cellIndex), 0, results);
+            isOnLoop[cellIndex] = false;
+            for (List<Cell> loop : results) {
+                // Unique loop found. Get cells with more than 2 potentials
+                List<Cell> extraCells = new ArrayList<>(2);
+                for (Cell loopCell : loop) {
+                    if (loopCell.getPotentialValues().cardinality() > 2)
+                        extraCells.add(loopCell);
+                }
+                if (extraCells.size() == 1) {
+                    // Try a type-1 hint
+                    UniqueLoopHint hint = createType1Hint(loop, extraCells.get(0), v1, v2);
+                    if (!result.contains(hint) && hint.isWorth())
+                        result.add(hint);
+                } else if (extraCells.size() > 2) {
+                    // Only type 2 is possible
+                    BitSet extraValues = new BitSet(10);
+                    for (Cell c : extraCells)
+                        extraValues.or(c.getPotentialValues());
+                    extraValues.clear(v1);
+                    extraValues.clear(v2);
+                    assert extraValues.cardinality() == 1;
+                    UniqueLoopHint hint = createType2Hint(grid, loop, extraCells, v1, v2);
+                    if (!result.contains(hint) && hint.isWorth())
+                        result.add(hint);
+                } else
+                    if (extraCells.size() == 2) {
+                    Cell r1 = extraCells.get(0);
+                    Cell r2 = extraCells.get(1);
+                    BitSet rPotentials = (BitSet)r1.getPotentialValues().clone();
+                    rPotentials.or(r2.getPotentialValues());
+                    rPotentials.clear(v1);
+                    rPotentials.clear(v2);
+                    if (rPotentials.cardinality() == 1) {
+                        // Try type 2 hint
+                        UniqueLoopHint hint = createType2Hint(grid, loop, extraCells, v1, v2);
+                        if (!result.contains(hint) && hint.isWorth())
+                            result.add(hint);
+                    } else if (rPotentials.cardinality() >= 2) {
+                        // Try type 3 hint
+                        Collection<UniqueLoopHint> hints = createType3Hints(grid, loop, r1, r2, v1, v2);
+                        for (UniqueLoopHint hint : hints) {
+                            if (!result.contains(hint) && hint.isWorth())
+                                result.add(hint);
                         }
                     }
+                    // Try type 4 hint
+                    UniqueLoopHint hint = createType4Hint(grid, loop, r1, r2, v1, v2);
+                    if (hint != null && !result.contains(hint) && hint.isWorth())
+                        result.add(hint);
+                } else {
+                    // Huh ? 0 rescue cell ? Sudoku has two solutions !!
+                    // Do nothing (this is not our business)
                 }
             }
         }
@@ -108,97 +118,86 @@ public class UniqueLoops implements IndirectHintProducer {
     }
 
     /**
-     * Check for potential loops with the given start and next cell.
+     * Check for potential loops continuing the current start of loop.
+     * <p>
+     * Loops are canonicalized: the first cell of a loop is its bivalue cell with
+     * the lowest index, and its second cell comes before its last cell in the
+     * order of {@link LinkIndex#getPeers(int)}. Each loop is therefore found once.
+     * <p>
+     * Every region visited by a cell of a unique loop must be visited by exactly two
+     * cells, and those two cells must have an index of different parity in the loop.
+     * Partial loops visiting a region twice with the same parity are abandoned.
      * @param grid the grid to search the loop in
-     * @param cell the next cell of the loop
-     * @param v1 the first potential value that all cells of the loop must have
-     * @param v2 the 2nd potential value that all cells of the loop must have
-     * @param loop the start of the loop
+     * @param length the number of cells in the start of the loop
      * @param allowedEx the remaining number of allowed cells with more than two
      * potential values in the loop.
-     * @param exValues the extra values in the current loop
-     * @param lastRegionType the region type shared by the last two cells.
-     * This region type can be skipped for the next cell. Might by <tt>null</tt>.
+     * @param exValues the mask of the extra values in the current loop
+     * @param evenRegions the regions visited by the cells with an even index
+     * @param oddRegions the regions visited by the cells with an odd index
      * @param results the collection to fill with all loops found
      */
-    private void checkForLoops(Grid grid, Cell cell, int v1, int v2,
-            List<Cell> loop, int allowedEx, BitSet exValues,
-            Class<? extends Grid.Region> lastRegionType, Collection<List<Cell>> results) {
-        loop.add(cell);
-        exValues = (BitSet)exValues.clone(); // Ensure we cleanup ourselves
-        for (Class<? extends Grid.Region> regionType : grid.getRegionTypes()) {
-            if (!regionType.equals(lastRegionType)) {
-                Grid.Region region = grid.getRegionAt(regionType, cell.getX(), cell.getY());
-                for (int i = 0; i < 9; i++) {
-                    Cell next = region.getCell(i);
-                    if (loop.get(0).equals(next) && loop.size() >= 4) {
-                        // Yeah, the loop is closed. Save a copy
-                        results.add(new ArrayList<>(loop));
-                    } else if (!loop.contains(next)) {
-                        BitSet potentials = next.getPotentialValues();
-                        if (potentials.get(v1) && potentials.get(v2)) {
-                            exValues.or(potentials);
-                            exValues.clear(v1);
-                            exValues.clear(v2);
-                            int cardinality = potentials.cardinality();
-                            // We can continue if
-                            // (1) The cell has exactly the two values of the loop
-                            // (2) The cell has one extra value, the same as all previous cells with
-                            // an extra value (for type 2 only)
-                            // (3) The cell has extra values and the maximum number of cells with
-                            // extra values, 2, is not reached
-                            if (cardinality == 2 || exValues.cardinality() == 1 || allowedEx > 0) {
-                                int newAllowedEx = allowedEx;
-                                if (cardinality > 2)
-                                    newAllowedEx--;
-                                checkForLoops(grid, next, v1, v2, loop, newAllowedEx, exValues,
-                                        regionType, results);
-                            }
-                        }
-                    } // Not in the loop yet
-                } // for i
-            } // not last region type
-        } // for regionType
-        // Rollback
-        loop.remove(loop.size() - 1);
+    private void checkForLoops(Grid grid, int length, int allowedEx, int exValues,
+            int evenRegions, int oddRegions, Collection<List<Cell>> results) {
+        int start = loop[0];
+        boolean isOdd = (length % 2 != 0);
+        for (int next : LinkIndex.getPeers(loop[length - 1])) {
+            if (next == start) {
+                if (length >= 4 && evenRegions == oddRegions && isCanonical(length)) {
+                    // Yeah, the loop is closed. Save a copy
+                    List<Cell> cells = new ArrayList<>(length);
+                    for (int i = 0; i < length; i++)
+                        cells.add(grid.getCell(loop[i] % 9, loop[i] / 9));
+                    results.add(cells);
+                }
+            } else if (!isOnLoop[next] && length < MAX_LOOP_LENGTH) {
+                int potentials = index.getPotentialMask(next);
+                int regions = getRegions(next);
+                if ((potentials & loopValues) == loopValues
+                        && (regions & (isOdd ? oddRegions : evenRegions)) == 0) {
+                    int cardinality = Integer.bitCount(potentials);
+                    int newExValues = exValues | (potentials & ~loopValues);
+                    // We can continue if
+                    // (1) The cell has exactly the two values of the loop, and comes
+                    // after the first cell of the loop
+                    // (2) The cell has one extra value, the same as all previous cells with
+                    // an extra value (for type 2 only)
+                    // (3) The cell has extra values and the maximum number of cells with
+                    // extra values, 2, is not reached
+                    if (cardinality == 2 ? next > start
+                            : Integer.bitCount(newExValues) == 1 || allowedEx > 0) {
+                        loop[length] = next;
+                        isOnLoop[next] = true;
+                        checkForLoops(grid, length + 1,
+                                (cardinality > 2 ? allowedEx - 1 : allowedEx), newExValues,
+                                (isOdd ? evenRegions : evenRegions | regions),
+                                (isOdd ? oddRegions | regions : oddRegions), results);
+                        isOnLoop[next] = false;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isCanonical(int length) {
+        for (int peer : LinkIndex.getPeers(loop[0])) {
+            if (peer == loop[1])
+                return true;
+            else if (peer == loop[length - 1])
+                return false;
+        }
+        return false;
     }
 
     /**
-     * Check if the given list of cells is a candidate for a unique loop.
-     * <p>
-     * The cells are already checked to all have the same two potentials
-     * (with at most two exceptions that can have more potentials).
-     * <p>
-     * This methods checks that every regions visited by a cell of the loop are
-     * visited exactly by two cells, and those two cells have an index of different
-     * parity.
-     * @param grid the grid
-     * @param loop the cells of the loop
-     * @return whether the given loop is a candidate for a unique loop
+     * Get the regions of a cell
+     * @param cellIndex the index of the cell
+     * @return the 27-bit mask of the indexes of the block, row and column
+     * of the cell (see {@link LinkIndex})
      */
-    private boolean isValidLoop(Grid grid, List<Cell> loop) {
-        HashSet<Grid.Region> visitedOdd = new HashSet<>();
-        HashSet<Grid.Region> visitedEven = new HashSet<>();
-        boolean isOdd = false;
-        for (Cell cell : loop) {
-            for (Class<? extends Grid.Region> regionType : grid.getRegionTypes()) {
-                Grid.Region region = grid.getRegionAt(regionType, cell.getX(), cell.getY());
-                if (isOdd) {
-                    if (visitedOdd.contains(region))
-                        return false;
-                    else
-                        visitedOdd.add(region);
-                } else {
-                    if (visitedEven.contains(region))
-                        return false;
-                    else
-                        visitedEven.add(region);
-                }
-            }
-            isOdd = !isOdd;
-        }
-        // All regions must have been visited once with each parity (or never)
-        return visitedOdd.equals(visitedEven);
+    private static int getRegions(int cellIndex) {
+        int x = cellIndex % 9;
+        int y = cellIndex / 9;
+        return 1 << (y / 3 * 3 + x / 3) | 1 << (9 + y) | 1 << (18 + x);
     }
 
     private UniqueLoopHint createType1Hint(List<Cell> loop, Cell rescueCell, int v1, int v2) {
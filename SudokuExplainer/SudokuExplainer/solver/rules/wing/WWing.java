@@ -11,39 +11,22 @@ import SudokuExplainer.units.*;
  */
 public class WWing implements IndirectHintProducer {
 
-    private boolean isWWingHeadAndTail(Cell cell1, BitSet values1, Cell cell2, BitSet values2) {
-        boolean isNotSameRegion = cell1.getRowNum() != cell2.getRowNum() &&
+    private boolean isWWingHeadAndTail(Cell cell1, Cell cell2) {
+        return cell1.getRowNum() != cell2.getRowNum() &&
                 cell1.getColumnNum() != cell2.getColumnNum() &&
                 cell1.getBlockNum() != cell2.getBlockNum();
-        if (isNotSameRegion) {
-            boolean isBothEmptyCells = cell1.isEmpty() && cell2.isEmpty();
-            if (isBothEmptyCells) {
-                boolean isBivalue = values1.cardinality() == 2 && values2.cardinality() == 2;
-                if (isBivalue) {
-                    BitSet temp = (BitSet)values1.clone();
-                    temp.and(values2);
-                    return temp.cardinality() == 2;
-                }
-            }
-        }
-
-        return false;
     }
 
-    private void findWWingIn(Grid grid, int headValue, int tailValue, Cell cell1, Cell cell2,
-            Class<? extends Grid.Region> regionType, int regionNumber, HintsAccumulator accu)
-            throws InterruptedException {
+    private void findWWingIn(Grid grid, LinkIndex index, int headValue, int tailValue,
+            Cell cell1, Cell cell2, Class<? extends Grid.Region> regionType, int regionNumber,
+            HintsAccumulator accu) throws InterruptedException {
         // Regard tailValue as link value of the chain
-        BitSet potentials;
-        if (regionType == Grid.Row.class) {
-            potentials = grid.getRow(regionNumber).getPotentialPositions(tailValue);
-        } else {
-            potentials = grid.getColumn(regionNumber).getPotentialPositions(tailValue);
-        }
-        if (potentials.cardinality() == 2) {
+        int region = LinkIndex.getRegionIndex(regionType, regionNumber);
+        if (index.isConjugatePair(tailValue, region)) {
             // Conjugate pair found, check if same row/column or not
-            int c1 = potentials.nextSetBit(0);
-            int c2 = potentials.nextSetBit(c1 + 1);
+            int potentials = index.getPositionMask(tailValue, region);
+            int c1 = Integer.numberOfTrailingZeros(potentials);
+            int c2 = 31 - Integer.numberOfLeadingZeros(potentials);
             if (regionType == Grid.Row.class) {
                 if (c1 == cell1.getColumnNum() && c2 == cell2.getColumnNum()) {
                     // Found W-Wing.
@@ -70,47 +53,47 @@ public class WWing implements IndirectHintProducer {
 
     @Override
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
-        for (int y1 = 0; y1 < 9; y1++) {
-            for (int x1 = 0; x1 < 9; x1++) {
-                Cell cell1 = grid.getCell(x1, y1);
-                BitSet values1 = cell1.getPotentialValues();
-                for (int y2 = 0; y2 < 9; y2++) {
-                    for (int x2 = 0; x2 < 9; x2++) {
-                        Cell cell2 = grid.getCell(x2, y2);
-                        BitSet values2 = cell2.getPotentialValues();
-                        if (isWWingHeadAndTail(cell1, values1, cell2, values2)) {
-                            // WWing head and tail found, check if some region has conjugate pair or not
-                            int d1 = values1.nextSetBit(0);
-                            int d2 = values1.nextSetBit(d1 + 1);
-
-                            // Found conjugate pair in row
-                            for (int row = 0; row < 9; row++) {
-                                // Same region, don't need to find conjugate pairs
-                                if (row == cell1.getRowNum() || row == cell2.getRowNum())
-                                    continue;
+        LinkIndex index = grid.getLinkIndex();
+        for (int i = 0; i < index.getBivalueCount(); i++) {
+            int index1 = index.getBivalueCell(i);
+            Cell cell1 = grid.getCell(index1 % 9, index1 / 9);
+            // The head and tail have the same two potential values
+            int values = index.getPotentialMask(index1);
+            int pairCount = index.getPairCount(values);
+            for (int j = 0; j < pairCount; j++) {
+                int index2 = index.getPairCell(values, j);
+                Cell cell2 = grid.getCell(index2 % 9, index2 / 9);
+                if (isWWingHeadAndTail(cell1, cell2)) {
+                    // WWing head and tail found, check if some region has conjugate pair or not
+                    int d1 = Integer.numberOfTrailingZeros(values) + 1;
+                    int d2 = 32 - Integer.numberOfLeadingZeros(values);
 
-                                // Regard d1 as head of the chain
-                                findWWingIn(grid, d1, d2, cell1, cell2, Grid.Row.class, row, accu);
-                                // Regard d2 as head of the chain
-                                findWWingIn(grid, d2, d1, cell1, cell2, Grid.Row.class, row, accu);
-                            }
+                    // Found conjugate pair in row
+                    for (int row = 0; row < 9; row++) {
+                        // Same region, don't need to find conjugate pairs
+                        if (row == cell1.getRowNum() || row == cell2.getRowNum())
+                            continue;
 
-                            // Found conjugate pair in column
-                            for (int column = 0; column < 9; column++) {
-                                if (column == cell1.getColumnNum() || column == cell2.getColumnNum())
-                                    continue;
+                        // Regard d1 as head of the chain
+                        findWWingIn(grid, index, d1, d2, cell1, cell2, Grid.Row.class, row, accu);
+                        // Regard d2 as head of the chain
+                        findWWingIn(grid, index, d2, d1, cell1, cell2, Grid.Row.class, row, accu);
+                    }
 
-                                // Regard d1 as head of the chain
-                                findWWingIn(grid, d1, d2, cell1, cell2, Grid.Column.class, column, accu);
-                                // Regard d2 as head of the chain
-                                findWWingIn(grid, d2, d1, cell1, cell2, Grid.Column.class, column, accu);
-                            }
+                    // Found conjugate pair in column
+                    for (int column = 0; column < 9; column++) {
+                        if (column == cell1.getColumnNum() || column == cell2.getColumnNum())
+                            continue;
 
-                            // We don't need to find conjugate pairs in block
-                            // because cells are not in same block.
-                        } // if isWWingHeadAndTail(cell1, values1, cell2, values2)
+                        // Regard d1 as head of the chain
+                        findWWingIn(grid, index, d1, d2, cell1, cell2, Grid.Column.class, column, accu);
+                        // Regard d2 as head of the chain
+                        findWWingIn(grid, index, d2, d1, cell1, cell2, Grid.Column.class, column, accu);
                     }
-                }
+
+                    // We don't need to find conjugate pairs in block
+                    // because cells are not in same block.
+                } // if isWWingHeadAndTail(cell1, cell2)
             }
         }
     }
@@ -0,0 +1,176 @@
+package SudokuExplainer.solver.rules.wing;
+
+import java.util.*;
+
+import SudokuExplainer.tools.*;
+import SudokuExplainer.units.Cell;
+import SudokuExplainer.units.Grid;
+import SudokuExplainer.units.LinkIndex;
+
+/**
+ * Bitwise search of the wings made of a pivot cell and of bivalue wing
+ * cells seeing it, all the wing cells sharing a common value "z"
+ * (WXYZ-Wings, VWXYZ-Wings and their extensions).
+ * <p>
+ * The potential values of the cells are read from the {@link LinkIndex} of the grid.
+ * For each pivot, the bivalue peers that can be part of a wing are indexed
+ * first, together with the other values they can pair with each "z" value.
+ * Pivots for which no value has enough distinct wings are skipped at once.
+ * The combinations of wing cells are enumerated in the order of
+ * {@link Cell#getHouseCells()}, and abandoned as soon as the chosen wings
+ * have no common value left or repeat the same pair of values.
+ */
+class WingSearch {
+
+    interface WingListener {
+        void wingFound(Cell pivotCell, Cell[] wingCells, int zValue,
+                Map<Cell, BitSet> removablePotentials) throws InterruptedException;
+    }
+
+    private final int wingCount;
+    private final boolean isIncompletedPivot;
+
+    private final Cell[] cells = new Cell[81];
+    private final int[] masks = new int[81];
+    private final int[] candidates = new int[20];
+    private final int[] candidateMasks = new int[20];
+    private final int[] partners = new int[9];
+    private final int[] wings;
+    private final int[] wingMasks;
+    private final Cell[] wingCells;
+    private int candidateCount;
+    private int pivot;
+    private WingListener listener;
+
+
+    /**
+     * Create a new wing search
+     * @param wingCount the number of bivalue wing cells
+     * @param isIncompletedPivot whether the pivot cell lacks the "z" value.
+     * The pivot has <tt>wingCount</tt> potential values if it does,
+     * and <tt>wingCount + 1</tt> otherwise.
+     */
+    WingSearch(int wingCount, boolean isIncompletedPivot) {
+        this.wingCount = wingCount;
+        this.isIncompletedPivot = isIncompletedPivot;
+        this.wings = new int[wingCount];
+        this.wingMasks = new int[wingCount];
+        this.wingCells = new Cell[wingCount];
+    }
+
+    void search(Grid grid, WingListener listener) throws InterruptedException {
+        LinkIndex index = grid.getLinkIndex();
+        for (int i = 0; i < 81; i++) {
+            cells[i] = grid.getCell(i % 9, i / 9);
+            masks[i] = index.getPotentialMask(i);
+        }
+        this.listener = listener;
+        try {
+            int pivotCardinality = isIncompletedPivot ? wingCount : wingCount + 1;
+            for (pivot = 0; pivot < 81; pivot++) {
+                int pivotMask = masks[pivot];
+                if (Integer.bitCount(pivotMask) == pivotCardinality) {
+                    int zValues = indexCandidates(pivotMask);
+                    if (zValues != 0)
+                        searchWings(0, 0, zValues);
+                }
+            }
+        } finally {
+            this.listener = null;
+        }
+    }
+
+    /**
+     * Collect the bivalue peers of the pivot that can be a wing cell.
+     * A wing cell has the "z" value and one value of the pivot other than "z".
+     * @param pivotMask the potential values of the pivot
+     * @return the mask of the "z" values for which there are enough
+     * wing cells with distinct potential values
+     */
+    private int indexCandidates(int pivotMask) {
+        Arrays.fill(partners, 0);
+        int[] peers = LinkIndex.getPeers(pivot);
+        int count = 0;
+        for (int peer : peers) {
+            int mask = masks[peer];
+            if (Integer.bitCount(mask) == 2) {
+                int common = mask & pivotMask;
+                if (isIncompletedPivot ? Integer.bitCount(common) == 1 : common == mask) {
+                    candidates[count] = peer;
+                    candidateMasks[count] = mask;
+                    count++;
+                    int zValues = (isIncompletedPivot ? mask & ~pivotMask : mask);
+                    for (int z = 0; z < 9; z++) {
+                        if ((zValues & (1 << z)) != 0)
+                            partners[z] |= mask & ~(1 << z);
+                    }
+                }
+            }
+        }
+        candidateCount = count;
+        int result = 0;
+        if (count >= wingCount) {
+            for (int z = 0; z < 9; z++) {
+                if (Integer.bitCount(partners[z]) == wingCount)
+                    result |= 1 << z;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Choose the wing cells, in increasing order of candidate index.
+     * @param start the first candidate that can be chosen
+     * @param depth the number of wing cells already chosen
+     * @param zValues the values common to all the wing cells chosen so far
+     */
+    private void searchWings(int start, int depth, int zValues) throws InterruptedException {
+        int end = candidateCount - (wingCount - depth);
+        for (int i = start; i <= end; i++) {
+            int mask = candidateMasks[i];
+            int common = zValues & mask;
+            if (common != 0 && !isChosen(mask, depth)) {
+                wings[depth] = candidates[i];
+                wingMasks[depth] = mask;
+                if (depth + 1 < wingCount)
+                    searchWings(i + 1, depth + 1, common);
+                else
+                    wingFound(Integer.numberOfTrailingZeros(common) + 1);
+            }
+        }
+    }
+
+    private boolean isChosen(int mask, int depth) {
+        for (int i = 0; i < depth; i++) {
+            if (wingMasks[i] == mask)
+                return true;
+        }
+        return false;
+    }
+
+    private void wingFound(int zValue) throws InterruptedException {
+        // The cells seeing all the wing cells (and the pivot if it has "z") lose "z"
+        Map<Cell, BitSet> removablePotentials = new HashMap<>();
+        int zMask = 1 << (zValue - 1);
+        for (int victim : LinkIndex.getPeers(wings[0])) {
+            if ((masks[victim] & zMask) != 0 && victim != pivot
+                    && (isIncompletedPivot || LinkIndex.isPeer(pivot, victim))
+                    && isVictim(victim))
+                removablePotentials.put(cells[victim], SingletonBitSet.create(zValue));
+        }
+        if (!removablePotentials.isEmpty()) {
+            for (int i = 0; i < wingCount; i++)
+                wingCells[i] = cells[wings[i]];
+            listener.wingFound(cells[pivot], wingCells, zValue, removablePotentials);
+        }
+    }
+
+    private boolean isVictim(int cell) {
+        for (int i = 1; i < wingCount; i++) {
+            if (!LinkIndex.isPeer(wings[i], cell))
+                return false;
+        }
+        return true;
+    }
+
+}
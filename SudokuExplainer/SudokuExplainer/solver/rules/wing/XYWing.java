@@ -6,6 +6,7 @@ import SudokuExplainer.solver.*;
 import SudokuExplainer.tools.*;
 import SudokuExplainer.units.Cell;
 import SudokuExplainer.units.Grid;
+import SudokuExplainer.units.LinkIndex;
 
 
 /**
@@ -28,111 +29,86 @@ public class XYWing implements IndirectHintProducer {
      * 1 and 9.
      * <p>
      * We test that their union has three value and their intersection is empty.
-     * @param xyValues the potential values of the "XY" cell
-     * @param xzValues the potential values of the "XZ" cell
-     * @param yzValues the potential values of the "YZ" cell
+     * @param xyValues the mask of the potential values of the "XY" cell
+     * @param xzValues the mask of the potential values of the "XZ" cell
+     * @param yzValues the mask of the potential values of the "YZ" cell
      * @return whether the three potential values set are forming an XY-Wing.
      */
-    private boolean isXYWing(BitSet xyValues, BitSet xzValues, BitSet yzValues) {
-        if (xyValues.cardinality() != 2 ||
-                xzValues.cardinality() != 2 ||
-                yzValues.cardinality() != 2)
+    private boolean isXYWing(int xyValues, int xzValues, int yzValues) {
+        if (Integer.bitCount(xyValues) != 2 ||
+                Integer.bitCount(xzValues) != 2 ||
+                Integer.bitCount(yzValues) != 2)
             return false;
-        BitSet union = (BitSet)xyValues.clone();
-        union.or(xzValues);
-        union.or(yzValues);
-        BitSet inter = (BitSet)xyValues.clone();
-        inter.and(xzValues);
-        inter.and(yzValues);
-        return union.cardinality() == 3 && inter.cardinality() == 0;
+        int union = xyValues | xzValues | yzValues;
+        int inter = xyValues & xzValues & yzValues;
+        return Integer.bitCount(union) == 3 && inter == 0;
     }
 
-    private boolean isXYZWing(BitSet xyValues, BitSet xzValues, BitSet yzValues) {
-        if (xyValues.cardinality() != 3 ||
-                xzValues.cardinality() != 2 ||
-                yzValues.cardinality() != 2)
+    private boolean isXYZWing(int xyValues, int xzValues, int yzValues) {
+        if (Integer.bitCount(xyValues) != 3 ||
+                Integer.bitCount(xzValues) != 2 ||
+                Integer.bitCount(yzValues) != 2)
             return false;
-        BitSet union = (BitSet)xyValues.clone();
-        union.or(xzValues);
-        union.or(yzValues);
-        BitSet inter = (BitSet)xyValues.clone();
-        inter.and(xzValues);
-        inter.and(yzValues);
-        return union.cardinality() == 3 && inter.cardinality() == 1;
+        int union = xyValues | xzValues | yzValues;
+        int inter = xyValues & xzValues & yzValues;
+        return Integer.bitCount(union) == 3 && Integer.bitCount(inter) == 1;
     }
 
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
         int targetCardinality = (isXYZ ? 3 : 2);
-        for (int y = 0; y < 9; y++) {
-            for (int x = 0; x < 9; x++) {
-                Cell xyCell = grid.getCell(x, y);
-                BitSet xyValues = xyCell.getPotentialValues();
-                if (xyValues.cardinality() == targetCardinality) {
-                    // Potential XY cell found
-                    for (Cell xzCell : xyCell.getHouseCells()) {
-                        BitSet xzValues = xzCell.getPotentialValues();
-                        if (xzValues.cardinality() == 2) {
-                            // Potential XZ cell found. Do small test
-                            BitSet remValues = (BitSet)xyValues.clone();
-                            remValues.andNot(xzValues);
-                            if (remValues.cardinality() == 1) {
-                                // We have found XZ cell, look for YZ cell
-                                for (Cell yzCell : xyCell.getHouseCells()) {
-                                    BitSet yzValues = yzCell.getPotentialValues();
-                                    if (yzValues.cardinality() == 2) {
-                                        // Potential YZ cell found
-                                        if (isXYZ) {
-                                            if (isXYZWing(xyValues, xzValues, yzValues)) {
-                                                // Found XYZ-Wing pattern
-                                                XYWingHint hint = createHint(xyCell, xzCell, yzCell,
-                                                        xzValues, yzValues);
-                                                if (hint.isWorth())
-                                                    accu.add(hint);
-                                            }
-                                        } else {
-                                            if (isXYWing(xyValues, xzValues, yzValues)) {
-                                                // Found XY-Wing pattern
-                                                XYWingHint hint = createHint(xyCell, xzCell, yzCell,
-                                                        xzValues, yzValues);
-                                                if (hint.isWorth())
-                                                    accu.add(hint);
-                                            }
-                                        }
-                                    } // yzValues.cardinality() == 2
-                                } // for yzCell
-                            } // xy - xz test
-                        } // xzValues.cardinality() == 2
-                    } // for xzCell
-                } // xyValues.cardinality() == 2
-            } // for x
-        } // for y
+        LinkIndex index = grid.getLinkIndex();
+        for (int xy = 0; xy < 81; xy++) {
+            int xyValues = index.getPotentialMask(xy);
+            if (Integer.bitCount(xyValues) == targetCardinality) {
+                // Potential XY cell found
+                int[] peers = LinkIndex.getPeers(xy);
+                for (int xz : peers) {
+                    int xzValues = index.getPotentialMask(xz);
+                    if (Integer.bitCount(xzValues) == 2) {
+                        // Potential XZ cell found. Do small test
+                        if (Integer.bitCount(xyValues & ~xzValues) == 1) {
+                            // We have found XZ cell, look for YZ cell
+                            for (int yz : peers) {
+                                int yzValues = index.getPotentialMask(yz);
+                                if (Integer.bitCount(yzValues) == 2) {
+                                    // Potential YZ cell found
+                                    boolean isWing = isXYZ ? isXYZWing(xyValues, xzValues, yzValues)
+                                            : isXYWing(xyValues, xzValues, yzValues);
+                                    if (isWing) {
+                                        // Found XY-Wing or XYZ-Wing pattern
+                                        XYWingHint hint = createHint(grid, index, xy, xz, yz,
+                                                xzValues & yzValues);
+                                        if (hint.isWorth())
+                                            accu.add(hint);
+                                    }
+                                } // yzValues.cardinality() == 2
+                            } // for yzCell
+                        } // xy - xz test
+                    } // xzValues.cardinality() == 2
+                } // for xzCell
+            } // xyValues.cardinality() == 2
+        } // for xy
     }
 
-    private XYWingHint createHint(
-            Cell xyCell, Cell xzCell, Cell yzCell,
-            BitSet xzValues, BitSet yzValues) {
+    private XYWingHint createHint(Grid grid, LinkIndex index,
+            int xy, int xz, int yz, int zMask) {
         // Get the "z" value
-        BitSet inter = (BitSet)xzValues.clone();
-        inter.and(yzValues);
-        int zValue = inter.nextSetBit(0);
+        int zValue = Integer.numberOfTrailingZeros(zMask) + 1;
 
         // Build list of removable potentials
         Map<Cell,BitSet> removablePotentials = new HashMap<>();
-        Set<Cell> victims = new LinkedHashSet<>(xzCell.getHouseCells());
-        victims.retainAll(yzCell.getHouseCells());
-        if (isXYZ)
-            victims.retainAll(xyCell.getHouseCells());
-        victims.remove(xyCell);
-        victims.remove(xzCell);
-        victims.remove(yzCell);
-        for (Cell cell : victims) {
-            if (cell.hasPotentialValue(zValue))
-                removablePotentials.put(cell, SingletonBitSet.create(zValue));
+        for (int victim : LinkIndex.getPeers(xz)) {
+            if ((index.getPotentialMask(victim) & zMask) != 0
+                    && victim != xy && LinkIndex.isPeer(yz, victim)
+                    && (!isXYZ || LinkIndex.isPeer(xy, victim)))
+                removablePotentials.put(grid.getCell(victim % 9, victim / 9),
+                        SingletonBitSet.create(zValue));
         }
 
         // Create hint
-        return new XYWingHint(this, removablePotentials, isXYZ, xyCell, xzCell, yzCell,
-                zValue);
+        return new XYWingHint(this, removablePotentials, isXYZ,
+                grid.getCell(xy % 9, xy / 9), grid.getCell(xz % 9, xz / 9),
+                grid.getCell(yz % 9, yz / 9), zValue);
     }
 
     @Override
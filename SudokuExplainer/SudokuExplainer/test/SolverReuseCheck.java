@@ -0,0 +1,81 @@
+package SudokuExplainer.test;
+
+import java.io.*;
+import java.util.*;
+
+import SudokuExplainer.solver.*;
+import SudokuExplainer.tools.tuples.Pair;
+import SudokuExplainer.tools.tuples.Quad;
+import SudokuExplainer.units.Grid;
+
+/**
+ * Check that a solver reused through {@link Solver#acquire(Grid)} rates
+ * the Sudokus exactly like a new solver, including when the same Sudoku
+ * is rated again by the same solver.
+ */
+public class SolverReuseCheck {
+
+    private static Grid readGrid(String line) {
+        Grid grid = new Grid();
+        for (int i = 0; i < 81; i++) {
+            char ch = line.charAt(i);
+            if (ch >= '1' && ch <= '9')
+                grid.setCellValue(i % 9, i / 9, ch - '0');
+        }
+        return grid;
+    }
+
+    private static String rate(Solver solver) {
+        solver.rebuildPotentialValues();
+        try {
+            Pair<Map<Rule,Integer>, Quad<Double,Double,Double,Integer>> info = solver.solve(null);
+            return solver.toNamedList(info.getValue1()) + " " + info.getValue2().getValue2()
+                    + " " + info.getValue2().getValue3() + " " + info.getValue2().getValue4();
+        } catch (UnsupportedOperationException ex) {
+            return "Failed !";
+        }
+    }
+
+    private static String rateWithPooledSolver(String line) {
+        Solver solver = Solver.acquire(readGrid(line));
+        try {
+            return rate(solver);
+        } finally {
+            solver.release();
+        }
+    }
+
+    /**
+     * Rate all the Sudokus of a given file with a new solver, then twice
+     * with a reused solver, and report the Sudokus whose ratings differ.
+     * @param args the file name
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1)
+            throw new IllegalArgumentException("Expected argument: fileName");
+        int count = 0;
+        int failures = 0;
+        try (LineNumberReader reader = new LineNumberReader(new FileReader(args[0]))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() < 81)
+                    continue;
+                String expected = rate(new Solver(readGrid(line)));
+                for (int pass = 1; pass <= 2; pass++) {
+                    String actual = rateWithPooledSolver(line);
+                    if (!actual.equals(expected)) {
+                        System.out.println("Sudoku #" + reader.getLineNumber() + ", pass " + pass
+                                + ": expected " + expected + ", got " + actual);
+                        failures++;
+                    }
+                }
+                count++;
+            }
+        }
+        System.out.println(count + " Sudokus checked, " + failures + " differences.");
+        if (failures > 0)
+            System.exit(1);
+    }
+
+}
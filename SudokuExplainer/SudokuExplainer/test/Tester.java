@@ -43,7 +43,7 @@ public class Tester {
                             grid.setCellValue(i % 9, i / 9, value);
                         }
                     }
-                    Solver solver = new Solver(grid);
+                    Solver solver = Solver.acquire(grid);
                     solver.rebuildPotentialValues();
                     try {
                         Pair<Map<Rule,Integer>, Quad<Double,Double,Double,Integer>> info = solver.solve(null);
@@ -69,6 +69,8 @@ public class Tester {
                     } catch (UnsupportedOperationException ex) {
                         writer.println("Failed !");
                         System.out.println("Failed !");
+                    } finally {
+                        solver.release();
                     }
                     writer.println();
                     System.out.println();
@@ -0,0 +1,58 @@
+package SudokuExplainer.tools;
+
+/**
+ * Precomputed combinations of <tt>k</tt> elements out of 9.
+ * <p>
+ * The combinations of each size are stored both as 9-bit masks and as arrays of
+ * bit indexes, in the same order as generated by {@link Permutations}, that is,
+ * by increasing binary value. They are shared and must not be modified.
+ */
+public class Combinations {
+
+    private static final int[][] masks = new int[10][];
+    private static final int[][][] indexes = new int[10][][];
+
+    static {
+        for (int countOnes = 0; countOnes <= 9; countOnes++) {
+            Permutations perm = new Permutations(countOnes, 9);
+            int count = 0;
+            int[] buffer = new int[126]; // C(9,4) and C(9,5) are the largest
+            while (perm.hasNext())
+                buffer[count++] = (int)perm.next();
+            masks[countOnes] = new int[count];
+            indexes[countOnes] = new int[count][];
+            for (int i = 0; i < count; i++) {
+                int mask = buffer[i];
+                masks[countOnes][i] = mask;
+                int[] bitNums = new int[countOnes];
+                int dst = 0;
+                for (int bit = 0; bit < 9; bit++) {
+                    if ((mask & (1 << bit)) != 0)
+                        bitNums[dst++] = bit;
+                }
+                indexes[countOnes][i] = bitNums;
+            }
+        }
+    }
+
+    /**
+     * Get all the combinations of <tt>countOnes</tt> elements out of 9, as 9-bit masks.
+     * @param countOnes the number of elements, between 0 and 9
+     * @return the combinations, by increasing value
+     */
+    public static int[] getMasks(int countOnes) {
+        return masks[countOnes];
+    }
+
+    /**
+     * Get all the combinations of <tt>countOnes</tt> elements out of 9, as arrays
+     * of 0-based element indexes. The combination at index <tt>i</tt> corresponds to
+     * the mask at index <tt>i</tt> of {@link #getMasks(int)}.
+     * @param countOnes the number of elements, between 0 and 9
+     * @return the combinations, by increasing value
+     */
+    public static int[][] getIndexes(int countOnes) {
+        return indexes[countOnes];
+    }
+
+}
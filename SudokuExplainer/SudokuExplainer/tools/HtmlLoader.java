@@ -2,6 +2,8 @@ package SudokuExplainer.tools;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
 
 public class HtmlLoader {
 
@@ -9,19 +11,62 @@ public class HtmlLoader {
             "<html><body>" +
             "Error while loading resource: {0}</body></html>";
 
+    private static final String[][] COLOR_TAGS = {
+            {"<r>", "<font color=\"red\">"}, {"</r>", "</font>"}, // red
+            {"<g>", "<font color=\"#009000\">"}, {"</g>", "</font>"}, // green (candidate)
+            {"<o>", "<font color=\"#E08000\">"}, {"</o>", "</font>"}, // orange
+            {"<b1>", "<font color=\"#0000A0\">"}, {"</b1>", "</font>"}, // blue (region)
+            {"<b2>", "<font color=\"#005000\">"}, {"</b2>", "</font>"}, // green (region)
+            {"<c>", "<font color=\"#00AAAA\">"}, {"</c>", "</font>"} // cyan (cell)
+    };
+
+    /*
+     * The HTML files already loaded, with their color tags replaced,
+     * by absolute resource name
+     */
+    private static final Map<String, String> templates = new ConcurrentHashMap<>();
+
     /**
      * Load the specified HTML file.
      * Custom color tags are automatically replaced by regular HTML color tags.
+     * <p>
+     * Each file is only read once: the same content is returned by the next calls.
      * @param caller the caller object (used to fetch the class loader)
      * @param fileName the name of the HTML file
      * @return the content of the HTML file
      */
     public static String loadHtml(Object caller, String fileName) {
         Class<?> callerClass = caller.getClass();
+        String resourceName = getResourceName(callerClass, fileName);
+        String result = templates.get(resourceName);
+        if (result == null) {
+            result = readHtml(callerClass, fileName);
+            if (result == null)
+                return LOAD_ERROR.replace("{0}", fileName);
+            templates.put(resourceName, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get the absolute name of a resource, as resolved by
+     * {@link Class#getResourceAsStream(String)}
+     */
+    private static String getResourceName(Class<?> callerClass, String fileName) {
+        if (fileName.startsWith("/"))
+            return fileName.substring(1);
+        String className = callerClass.getName();
+        int index = className.lastIndexOf('.');
+        if (index < 0)
+            return fileName;
+        return className.substring(0, index).replace('.', '/') + "/" + fileName;
+    }
+
+    private static String readHtml(Class<?> callerClass, String fileName) {
         InputStream input = callerClass.getResourceAsStream(fileName);
         if (input == null) {
             System.err.println("Resource not found: " + fileName);
-            return LOAD_ERROR.replace("{0}", fileName);
+            return null;
         }
         try {
             Reader reader0 = new InputStreamReader(input, StandardCharsets.ISO_8859_1);
@@ -39,7 +84,7 @@ public class HtmlLoader {
             return formatColors(result);
         } catch (IOException ex) {
             ex.printStackTrace();
-            return LOAD_ERROR.replace("{0}", fileName);
+            return null;
         }
     }
 
@@ -48,22 +93,25 @@ public class HtmlLoader {
      * @param html the HTML to convert
      * @return the converted HTML
      */
-    @SuppressWarnings("SpellCheckingInspection")
     public static String formatColors(String html) {
-        String result = html;
-        result = result.replace("<r>", "<font color=\"red\">"); // red
-        result = result.replace("</r>", "</font>");
-        result = result.replace("<g>", "<font color=\"#009000\">"); // green (candidate)
-        result = result.replace("</g>", "</font>");
-        result = result.replace("<o>", "<font color=\"#E08000\">"); // orange
-        result = result.replace("</o>", "</font>");
-        result = result.replace("<b1>", "<font color=\"#0000A0\">"); // blue (region)
-        result = result.replace("</b1>", "</font>");
-        result = result.replace("<b2>", "<font color=\"#005000\">"); // green (region)
-        result = result.replace("</b2>", "</font>");
-        result = result.replace("<c>", "<font color=\"#00AAAA\">"); // cyan (cell)
-        result = result.replace("</c>", "</font>");
-        return result;
+        // Single pass: the regular tags never contain a custom tag
+        StringBuilder result = null;
+        int last = 0;
+        for (int i = html.indexOf('<'); i >= 0; i = html.indexOf('<', i + 1)) {
+            for (String[] tag : COLOR_TAGS) {
+                if (html.startsWith(tag[0], i)) {
+                    if (result == null)
+                        result = new StringBuilder(html.length() + 256);
+                    result.append(html, last, i).append(tag[1]);
+                    last = i + tag[0].length();
+                    i = last - 1;
+                    break;
+                }
+            }
+        }
+        if (result == null)
+            return html;
+        return result.append(html, last, html.length()).toString();
     }
 
     /**
@@ -27,15 +27,22 @@ package SudokuExplainer.tools;
  * </ul>
  * Code adapted from "Hacker's Delight" by Henry S. Warren, 
  * ISBN 0-201-91465-4
+ * <p>
+ * In tight loops, the same instance can be reused with {@link #reset(int, int)},
+ * and the bit indexes can be stored in a caller-supplied buffer with
+ * {@link #nextBitNums(int[])}. Callers that only need the binary numbers can
+ * also iterate without any instance, using {@link #firstMask(int)} and
+ * {@link #nextMask(long)}.
  */
 public class Permutations {
 
-    private final int countBits;
-    private final int countOnes;
+    private int countBits;
+    private int countOnes;
 
-    private final long mask;
+    private long mask;
 
     private long value;
+    private long current;
     private boolean isLast;
 
 
@@ -49,6 +56,24 @@ public class Permutations {
      * @param countBits the length of the binary numbers in bits
      */
     public Permutations(int countOnes, int countBits) {
+        reset(countOnes, countBits);
+    }
+
+    /**
+     * Restart the generation of the binary permutations from the first one.
+     */
+    public void reset() {
+        this.value = (1L << countOnes) - 1;
+        this.isLast = (countBits == 0);
+    }
+
+    /**
+     * Restart the generation of the binary permutations with new parameters,
+     * as if this instance was created by {@link #Permutations(int, int)}.
+     * @param countOnes the number of bits equal to one
+     * @param countBits the length of the binary numbers in bits
+     */
+    public void reset(int countOnes, int countBits) {
         if (countOnes < 0)
             throw new IllegalArgumentException("countOnes < 0");
         if (countBits < 0)
@@ -59,9 +84,8 @@ public class Permutations {
             throw new IllegalArgumentException("countBits > 64");
         this.countBits = countBits;
         this.countOnes = countOnes;
-        this.value = (1 << countOnes) - 1;
         this.mask = (1L << (countBits - countOnes)) - 1;
-        this.isLast = (countBits == 0);
+        reset();
     }
 
     /**
@@ -80,16 +104,21 @@ public class Permutations {
      */
     public long next() {
         long result = value;
-        if (!isLast) {
-            long smallest = value & -value;
-            long ripple = value + smallest;
-            long ones = value ^ ripple;
-            ones = (ones >>> 2) / smallest;
-            value = ripple | ones;
-        }
+        if (!isLast)
+            value = nextMask(value);
+        current = result;
         return result;
     }
 
+    /**
+     * Get the binary permutation that was returned by the last call
+     * to {@link #next()}, {@link #nextBitNums()} or {@link #nextBitNums(int[])}.
+     * @return the current binary permutation
+     */
+    public long getMask() {
+        return current;
+    }
+
     /**
      * Get the next binary permutation as an array
      * of bit indexes.
@@ -97,14 +126,55 @@ public class Permutations {
      * to one.
      */
     public int[] nextBitNums() {
+        return nextBitNums(new int[countOnes]);
+    }
+
+    /**
+     * Get the next binary permutation as an array
+     * of bit indexes, stored in the given buffer.
+     * @param result the buffer, whose length must be at least
+     * the number of bits equal to one
+     * @return the given buffer, filled with the 0-based indexes of the bits
+     * that are set to one.
+     */
+    public int[] nextBitNums(int[] result) {
         long mask = next();
-        int[] result = new int[countOnes];
         int dst = 0;
-        for (int src = 0; src < countBits; src++) {
-            if ((mask & (1L << src)) != 0) // Bit number 'src' is set
-                result[dst++] = src;
+        while (mask != 0) {
+            result[dst++] = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
         }
         return result;
     }
 
+    /**
+     * Get the first binary number with the given number of bits equal to one,
+     * that is, the smallest one.
+     * @param countOnes the number of bits equal to one, at least one
+     * @return the first binary number
+     */
+    public static long firstMask(int countOnes) {
+        return (1L << countOnes) - 1;
+    }
+
+    /**
+     * Get the smallest binary number greater than the given one, with the same
+     * number of bits equal to one (Gosper's hack).
+     * <p>
+     * Typical usage, iterating on the binary numbers of length <tt>countBits</tt>
+     * (less than 63) that have <tt>countOnes</tt> bits equal to one:
+     * <pre>
+     * for (long mask = firstMask(countOnes); mask &lt; (1L &lt;&lt; countBits); mask = nextMask(mask))
+     * </pre>
+     * @param mask a binary number, not zero
+     * @return the next binary number
+     */
+    public static long nextMask(long mask) {
+        long smallest = mask & -mask;
+        long ripple = mask + smallest;
+        long ones = mask ^ ripple;
+        ones = (ones >>> 2) / smallest;
+        return ripple | ones;
+    }
+
 }
@@ -0,0 +1,16 @@
+package SudokuExplainer.tools;
+
+/**
+ * Interface for a gui component that can display the progress
+ * of a long computation (e.g. in the form of a progress bar).
+ */
+public interface ProgressListener {
+    /**
+     * Report the progress of the computation. This method is called
+     * by the thread running the computation.
+     * @param task a short description of what is being computed
+     * @param progress the fraction of the computation that is done,
+     * between 0 and 1, inclusive
+     */
+    void progress(String task, double progress);
+}
@@ -89,11 +89,17 @@ public class Cell {
      * clear it.
      */
     public void setValue(int value) {
-        this.value = value;
-        this.cellType = value == 0 ? CellType.Empty : CellType.Modifiable;
+        setValue(value, CellType.Modifiable);
     }
 
     public void setValue(int value, CellType cellType) {
+        if (value != this.value) {
+            grid.valueChanged(this, this.value, value);
+            if (this.value != 0)
+                grid.cellChanged(this, this.value);
+            if (value != 0)
+                grid.cellChanged(this, value);
+        }
         this.value = value;
         this.cellType = value == 0 ? CellType.Empty : cellType;
     }
@@ -118,8 +124,10 @@ public class Cell {
     public void setValueAndCancel(int value, CellType cellType) {
         assert value != 0;
         this.cellType = cellType;
+        grid.valueChanged(this, this.value, value);
         this.value = value;
-        this.potentialValues.clear();
+        clearPotentialValues();
+        grid.cellChanged(this, value);
         for (Class<? extends Grid.Region> regionType : grid.getRegionTypes()) {
             Grid.Region region = grid.getRegionAt(regionType, this.x, this.y);
             for (int i = 0; i < 9; i++) {
@@ -157,7 +165,10 @@ public class Cell {
      * @param value the value to add, between 1 and 9, inclusive
      */
     public void addPotentialValue(int value) {
-        this.potentialValues.set(value, true);
+        if (!this.potentialValues.get(value)) {
+            this.potentialValues.set(value, true);
+            grid.cellChanged(this, value);
+        }
     }
 
     /**
@@ -165,14 +176,22 @@ public class Cell {
      * @param value the value to remove, between 1 and 9, inclusive
      */
     public void removePotentialValue(int value) {
-        this.potentialValues.set(value, false);
+        if (this.potentialValues.get(value)) {
+            this.potentialValues.set(value, false);
+            grid.cellChanged(this, value);
+        }
     }
 
     public void removePotentialValues(BitSet valuesToRemove) {
-        this.potentialValues.andNot(valuesToRemove);
+        for (int value = valuesToRemove.nextSetBit(0); value >= 0;
+             value = valuesToRemove.nextSetBit(value + 1))
+            removePotentialValue(value);
     }
 
     public void clearPotentialValues() {
+        for (int value = potentialValues.nextSetBit(0); value >= 0;
+             value = potentialValues.nextSetBit(value + 1))
+            grid.cellChanged(this, value);
         this.potentialValues.clear();
     }
 
@@ -290,9 +309,11 @@ public class Cell {
      */
     public void copyTo(Cell other) {
         assert this.x == other.x && this.y == other.y;
+        other.grid.valueChanged(other, other.value, this.value);
         other.value = this.value;
         other.cellType = this.cellType;
         other.potentialValues = (BitSet)this.potentialValues.clone();
+        other.grid.cellChanged(other, 0);
     }
 
 }
@@ -28,6 +28,29 @@ public class Grid {
     private Column[] columns = new Column[9];
     private Block[] blocks = new Block[9];
 
+    /*
+     * Change tracking. Every modification of a cell (value or potential values)
+     * increments the change count, and stamps the three regions of the cell and
+     * the concerned value with the new count. Regions are numbered 0-8 (blocks),
+     * 9-17 (rows) and 18-26 (columns).
+     */
+    private long changeCount = 0;
+    private final long[] regionChanges = new long[27];
+    private final long[] valueChanges = new long[10];
+
+    /*
+     * Values of the cells of each region, maintained by Cell on each change
+     * of a value: mask of the values placed (bit value - 1) and number of
+     * empty cells, by region index. The number of cells holding each value
+     * (index region * 9 + value - 1) keeps the masks right when an invalid
+     * grid has the same value twice in a region.
+     */
+    private final int[] regionValues = new int[27];
+    private final int[] regionEmptyCounts = new int[27];
+    private final int[] regionValueCounts = new int[27 * 9];
+
+    private LinkIndex linkIndex = null;
+
 
     /**
      * Create a new 9x9 Sudoku grid. All cells are set to empty
@@ -38,6 +61,7 @@ public class Grid {
                 cells[y][x] = new Cell(this, x, y);
             }
         }
+        Arrays.fill(regionEmptyCounts, 9);
         // Build sub-parts views
         for (int i = 0; i < 9; i++) {
             rows[i] = new Row(i);
@@ -177,6 +201,99 @@ public class Grid {
         return getRegionAt(regionType, cell.getX(), cell.getY());
     }
 
+    /**
+     * Get the number of changes that were made to the cells of this grid
+     * since its creation.
+     * <p>
+     * Comparing this value with the values returned by {@link Region#getLastChange()}
+     * and {@link #getLastChange(int)} tells which regions and which values have
+     * been modified after a given point of time.
+     * @return the number of changes made to this grid
+     */
+    public long getChangeCount() {
+        return this.changeCount;
+    }
+
+    /**
+     * Get the change count of the last modification involving the given value,
+     * either as the value of a cell or as a potential value.
+     * @param value the value, between 1 and 9, inclusive
+     * @return the change count of the last modification involving the value
+     * @see #getChangeCount()
+     */
+    public long getLastChange(int value) {
+        return this.valueChanges[value];
+    }
+
+    /**
+     * Get the index of the bivalue cells and conjugate pairs of this grid.
+     * The index is rebuilt only if this grid was modified since the last call.
+     * @return the up-to-date link index of this grid
+     */
+    public LinkIndex getLinkIndex() {
+        if (linkIndex == null)
+            linkIndex = new LinkIndex(this);
+        linkIndex.update();
+        return linkIndex;
+    }
+
+    /**
+     * Record a modification of a cell of this grid.
+     * @param cell the modified cell
+     * @param value the value involved in the modification, or <tt>0</tt> if
+     * any value might be involved
+     */
+    void cellChanged(Cell cell, int value) {
+        long stamp = ++changeCount;
+        regionChanges[cell.getBlockNum()] = stamp;
+        regionChanges[9 + cell.getRowNum()] = stamp;
+        regionChanges[18 + cell.getColumnNum()] = stamp;
+        if (value == 0)
+            Arrays.fill(valueChanges, stamp);
+        else
+            valueChanges[value] = stamp;
+    }
+
+    /**
+     * Record a change of the value of a cell of this grid, before the cell
+     * is updated. This does not count as a modification: the caller must
+     * also call {@link #cellChanged(Cell, int)}.
+     * @param cell the cell
+     * @param oldValue the current value of the cell, <tt>0</tt> if empty
+     * @param newValue the new value of the cell, <tt>0</tt> to clear it
+     */
+    void valueChanged(Cell cell, int oldValue, int newValue) {
+        if (oldValue == newValue)
+            return;
+        int block = cell.getBlockNum();
+        int row = 9 + cell.getRowNum();
+        int column = 18 + cell.getColumnNum();
+        if (oldValue != 0) {
+            removeRegionValue(block, oldValue);
+            removeRegionValue(row, oldValue);
+            removeRegionValue(column, oldValue);
+        }
+        if (newValue != 0) {
+            addRegionValue(block, newValue);
+            addRegionValue(row, newValue);
+            addRegionValue(column, newValue);
+        }
+        int delta = (oldValue == 0 ? -1 : 0) + (newValue == 0 ? 1 : 0);
+        regionEmptyCounts[block] += delta;
+        regionEmptyCounts[row] += delta;
+        regionEmptyCounts[column] += delta;
+    }
+
+    private void addRegionValue(int region, int value) {
+        if (regionValueCounts[region * 9 + value - 1]++ == 0)
+            regionValues[region] |= 1 << (value - 1);
+    }
+
+    private void removeRegionValue(int region, int value) {
+        if (--regionValueCounts[region * 9 + value - 1] == 0)
+            regionValues[region] &= ~(1 << (value - 1));
+    }
+
     private List<Class<? extends Grid.Region>> _regionTypes = null;
 
     /**
@@ -201,9 +318,38 @@ public class Grid {
     /**
      * Abstract class representing a region of a sudoku grid. A region
      * is either a row, a column or a 3x3 block.
+     * <p>
+     * The queries on the cells of a region (values, empty cells, common cells)
+     * rely on static tables of the regions (see {@link LinkIndex}) and on the
+     * values of the regions maintained by the grid, and do not iterate on the cells.
      */
     public abstract static class Region {
 
+        private final Grid grid;
+        private final int index;
+        private Set<Cell> cellSet = null;
+
+        /**
+         * Create a new region
+         * @param grid the grid this region is part of
+         * @param index the index of this region: <tt>0-8</tt> for blocks,
+         * <tt>9-17</tt> for rows and <tt>18-26</tt> for columns
+         */
+        Region(Grid grid, int index) {
+            this.grid = grid;
+            this.index = index;
+        }
+
+        /**
+         * Get the index of this region within the grid: <tt>0-8</tt> for blocks,
+         * <tt>9-17</tt> for rows and <tt>18-26</tt> for columns.
+         * @return the index of this region
+         * @see LinkIndex#getRegionIndex(Class, int)
+         */
+        public int getIndex() {
+            return this.index;
+        }
+
         /**
          * Get a cell of this region by index. The order in which cells are
          * returned according to the index is not defined, but is guaranteed
@@ -240,11 +386,16 @@ public class Grid {
          * @return whether this region contains the given value
          */
         public boolean contains(int value) {
-            for (int i = 0; i < 9; i++) {
-                if (getCell(i).getValue() == value)
-                    return true;
-            }
-            return false;
+            return value != 0 && (grid.regionValues[index] & (1 << (value - 1))) != 0;
+        }
+
+        /**
+         * Get the values of the cells of this region.
+         * @return the mask of the values placed in this region, bit
+         * <tt>value - 1</tt> being set for each value
+         */
+        public int getValueMask() {
+            return grid.regionValues[index];
         }
 
         /**
@@ -272,24 +423,36 @@ public class Grid {
         /**
          * Get the cells of this region. The iteration order of the result
          * matches the order of the cells returned by {@link #getCell(int)}.
+         * <p>
+         * The set is built once per region and can not be modified.
          * @return the cells of this region.
          */
         public Set<Cell> getCellSet() {
-            Set<Cell> result = new LinkedHashSet<>();
-            for (int i = 0; i < 9; i++)
-                result.add(getCell(i));
-            return result;
+            if (cellSet == null) {
+                Set<Cell> result = new LinkedHashSet<>();
+                for (int i = 0; i < 9; i++)
+                    result.add(getCell(i));
+                cellSet = Collections.unmodifiableSet(result);
+            }
+            return cellSet;
         }
 
         /**
          * Return the cells that are common to this region and the
-         * given region
+         * given region. The iteration order of the result matches
+         * the order of the cells of this region.
          * @param other the other region
          * @return the cells belonging to this region and to the other region
          */
         public Set<Cell> commonCells(Region other) {
-            Set<Cell> result = this.getCellSet();
-            result.retainAll(other.getCellSet());
+            if (other.index == this.index)
+                return new LinkedHashSet<>(getCellSet());
+            Set<Cell> result = new LinkedHashSet<>();
+            int positions = LinkIndex.getCommonPositions(this.index, other.index);
+            for (int i = 0; i < 9; i++) {
+                if ((positions & (1 << i)) != 0)
+                    result.add(getCell(i));
+            }
             return result;
         }
 
@@ -302,7 +465,8 @@ public class Grid {
          * @return whether this region crosses the other region.
          */
         public boolean crosses(Region other) {
-            return !commonCells(other).isEmpty();
+            return other.index == this.index
+                    || LinkIndex.getCommonPositions(this.index, other.index) != 0;
         }
 
         /**
@@ -310,13 +474,16 @@ public class Grid {
          * @return the number of cells of this region that are still empty
          */
         public int getEmptyCellCount() {
-            int result = 0;
-            for (int i = 0; i < 9; i++)
-                if (getCell(i).isEmpty())
-                    result++;
-            return result;
+            return grid.regionEmptyCounts[index];
         }
 
+        /**
+         * Get the change count of the last modification of a cell of this region.
+         * @return the change count of the last modification of this region
+         * @see Grid#getChangeCount()
+         */
+        public abstract long getLastChange();
+
         /**
          * Get a string representation of this region's type
          */
@@ -339,6 +506,7 @@ public class Grid {
         private int rowNum;
 
         public Row(int rowNum) {
+            super(Grid.this, 9 + rowNum);
             this.rowNum = rowNum;
         }
 
@@ -357,18 +525,8 @@ public class Grid {
         }
 
         @Override
-        public boolean crosses(Region other) {
-            if (other instanceof Block) {
-                Block square = (Block)other;
-                return rowNum / 3 == square.vNum;
-            } else if (other instanceof Column) {
-                return true;
-            } else if (other instanceof Row) {
-                Row row = (Row)other;
-                return this.rowNum == row.rowNum;
-            } else {
-                return super.crosses(other);
-            }
+        public long getLastChange() {
+            return regionChanges[9 + rowNum];
         }
 
         @Override
@@ -394,6 +552,7 @@ public class Grid {
         private int columnNum;
 
         public Column(int columnNum) {
+            super(Grid.this, 18 + columnNum);
             this.columnNum = columnNum;
         }
 
@@ -412,18 +571,8 @@ public class Grid {
         }
 
         @Override
-        public boolean crosses(Region other) {
-            if (other instanceof Block) {
-                Block square = (Block)other;
-                return columnNum / 3 == square.hNum;
-            } else if (other instanceof Row) {
-                return true;
-            } else if (other instanceof Column) {
-                Column column = (Column)other;
-                return this.columnNum == column.columnNum;
-            } else {
-                return super.crosses(other);
-            }
+        public long getLastChange() {
+            return regionChanges[18 + columnNum];
         }
 
         @Override
@@ -450,6 +599,7 @@ public class Grid {
         private int vNum, hNum;
 
         public Block(int vNum, int hNum) {
+            super(Grid.this, vNum * 3 + hNum);
             this.vNum = vNum;
             this.hNum = hNum;
         }
@@ -472,19 +622,9 @@ public class Grid {
             return (cell.getY() % 3) * 3 + (cell.getX() % 3);
         }
 
-        @SuppressWarnings("RedundantCast")
         @Override
-        public boolean crosses(Region other) {
-            if (other instanceof Row) {
-                return ((Row)other).crosses(this);
-            } else if (other instanceof Column) {
-                return ((Column)other).crosses(this);
-            } else if (other instanceof Block) {
-                Block square = (Block)other;
-                return this.vNum == square.vNum && this.hNum == square.hNum;
-            } else {
-                return super.crosses(other);
-            }
+        public long getLastChange() {
+            return regionChanges[vNum * 3 + hNum];
         }
 
         @Override
@@ -0,0 +1,276 @@
+package SudokuExplainer.units;
+
+import java.util.*;
+
+/**
+ * Index of the bivalue cells and of the conjugate pairs of a grid.
+ * <p>
+ * The index is built from the potential values of the grid in a single pass,
+ * and shared by all the hint producers searching the same grid state: it is
+ * only rebuilt when the grid has been modified (see {@link Grid#getChangeCount()}).
+ * Use {@link Grid#getLinkIndex()} to get an up-to-date index.
+ * <p>
+ * Cells are identified by their index <tt>y * 9 + x</tt>. Regions are identified
+ * by their index <tt>0-8</tt> (blocks), <tt>9-17</tt> (rows) and <tt>18-26</tt> (columns).
+ * Sets of values and of positions are 9-bit masks: bit <tt>value - 1</tt> is set
+ * for a value, bit <tt>index</tt> for the cell at the given index of a region.
+ */
+public class LinkIndex {
+
+    /*
+     * The peers of each cell, in the order of Cell.getHouseCells()
+     */
+    private static final int[][] PEERS = new int[81][20];
+    private static final boolean[][] IS_PEER = new boolean[81][81];
+    private static final int[][] REGION_CELLS = new int[27][9];
+    private static final int[][] COMMON_POSITIONS = new int[27][27];
+
+    static {
+        for (int i = 0; i < 9; i++) {
+            for (int position = 0; position < 9; position++) {
+                REGION_CELLS[i][position] = (i / 3 * 3 + position / 3) * 9 + i % 3 * 3 + position % 3;
+                REGION_CELLS[9 + i][position] = i * 9 + position;
+                REGION_CELLS[18 + i][position] = position * 9 + i;
+            }
+        }
+        for (int region = 0; region < 27; region++) {
+            for (int position = 0; position < 9; position++) {
+                int cell = REGION_CELLS[region][position];
+                int x = cell % 9;
+                int y = cell / 9;
+                for (int other : new int[] {y / 3 * 3 + x / 3, 9 + y, 18 + x}) {
+                    if (other != region)
+                        COMMON_POSITIONS[region][other] |= 1 << position;
+                }
+            }
+        }
+        for (int index = 0; index < 81; index++) {
+            int x = index % 9;
+            int y = index / 9;
+            int[] houseCells = new int[27];
+            for (int i = 0; i < 9; i++) {
+                houseCells[i] = (y / 3 * 3 + i / 3) * 9 + x / 3 * 3 + i % 3; // Block
+                houseCells[9 + i] = y * 9 + i; // Row
+                houseCells[18 + i] = i * 9 + x; // Column
+            }
+            int count = 0;
+            for (int peer : houseCells) {
+                if (peer != index && !IS_PEER[index][peer]) {
+                    IS_PEER[index][peer] = true;
+                    PEERS[index][count++] = peer;
+                }
+            }
+        }
+    }
+
+    private final Grid grid;
+    private long changeCount = -1;
+
+    private final int[] potentialMasks = new int[81];
+    private final int[][] positionMasks = new int[10][27];
+    private final int[] conjugateRegions = new int[10];
+    private final int[] bivalueCells = new int[81];
+    private int bivalueCount;
+    private final int[] pairStarts = new int[82];
+    private final int[] pairCells = new int[81];
+
+
+    LinkIndex(Grid grid) {
+        this.grid = grid;
+    }
+
+    /**
+     * Rebuild this index if the grid was modified since the last build.
+     */
+    void update() {
+        if (changeCount != grid.getChangeCount()) {
+            build();
+            changeCount = grid.getChangeCount();
+        }
+    }
+
+    private void build() {
+        for (int[] masks : positionMasks)
+            Arrays.fill(masks, 0);
+        Arrays.fill(pairStarts, 0);
+        bivalueCount = 0;
+        for (int index = 0; index < 81; index++) {
+            Cell cell = grid.getCell(index % 9, index / 9);
+            BitSet values = cell.getPotentialValues();
+            int mask = 0;
+            int block = cell.getBlockNum();
+            int blockPos = (index / 9 % 3) * 3 + index % 3;
+            for (int value = values.nextSetBit(1); value >= 0; value = values.nextSetBit(value + 1)) {
+                mask |= 1 << (value - 1);
+                int[] masks = positionMasks[value];
+                masks[block] |= 1 << blockPos;
+                masks[9 + index / 9] |= 1 << (index % 9);
+                masks[18 + index % 9] |= 1 << (index / 9);
+            }
+            potentialMasks[index] = mask;
+            if (Integer.bitCount(mask) == 2) {
+                bivalueCells[bivalueCount++] = index;
+                pairStarts[getPairKey(mask) + 1]++;
+            }
+        }
+        // Group the bivalue cells by pair of values, keeping the order of the cells
+        for (int key = 0; key < 81; key++)
+            pairStarts[key + 1] += pairStarts[key];
+        int[] next = Arrays.copyOf(pairStarts, 81);
+        for (int i = 0; i < bivalueCount; i++) {
+            int index = bivalueCells[i];
+            pairCells[next[getPairKey(potentialMasks[index])]++] = index;
+        }
+        for (int value = 1; value <= 9; value++) {
+            int regions = 0;
+            for (int region = 0; region < 27; region++) {
+                if (Integer.bitCount(positionMasks[value][region]) == 2)
+                    regions |= 1 << region;
+            }
+            conjugateRegions[value] = regions;
+        }
+    }
+
+    private static int getPairKey(int mask) {
+        int v1 = Integer.numberOfTrailingZeros(mask);
+        int v2 = 31 - Integer.numberOfLeadingZeros(mask);
+        return v1 * 9 + v2;
+    }
+
+    /**
+     * Get the potential values of a cell
+     * @param index the index of the cell
+     * @return the mask of the potential values of the cell
+     */
+    public int getPotentialMask(int index) {
+        return potentialMasks[index];
+    }
+
+    /**
+     * Get the number of cells with exactly two potential values
+     * @return the number of bivalue cells
+     */
+    public int getBivalueCount() {
+        return bivalueCount;
+    }
+
+    /**
+     * Get a bivalue cell. Bivalue cells are sorted by index.
+     * @param i the number of the bivalue cell, between <tt>0</tt> (inclusive)
+     * and {@link #getBivalueCount()} (exclusive)
+     * @return the index of the cell
+     */
+    public int getBivalueCell(int i) {
+        return bivalueCells[i];
+    }
+
+    /**
+     * Get the number of bivalue cells having exactly the given two potential values
+     * @param mask the mask of the two values
+     * @return the number of cells
+     */
+    public int getPairCount(int mask) {
+        int key = getPairKey(mask);
+        return pairStarts[key + 1] - pairStarts[key];
+    }
+
+    /**
+     * Get a bivalue cell having exactly the given two potential values.
+     * These cells are sorted by index.
+     * @param mask the mask of the two values
+     * @param i the number of the cell, between <tt>0</tt> (inclusive)
+     * and {@link #getPairCount(int)} (exclusive)
+     * @return the index of the cell
+     */
+    public int getPairCell(int mask, int i) {
+        return pairCells[pairStarts[getPairKey(mask)] + i];
+    }
+
+    /**
+     * Get the potential positions of a value in a region
+     * @param value the value, between 1 and 9, inclusive
+     * @param region the index of the region
+     * @return the mask of the indexes of the cells of the region having the
+     * potential value
+     */
+    public int getPositionMask(int value, int region) {
+        return positionMasks[value][region];
+    }
+
+    /**
+     * Get the regions in which a value has exactly two potential positions
+     * @param value the value, between 1 and 9, inclusive
+     * @return the 27-bit mask of the indexes of the regions
+     */
+    public int getConjugateRegions(int value) {
+        return conjugateRegions[value];
+    }
+
+    /**
+     * Test whether a value has exactly two potential positions in a region
+     * @param value the value, between 1 and 9, inclusive
+     * @param region the index of the region
+     * @return whether the two positions form a conjugate pair
+     */
+    public boolean isConjugatePair(int value, int region) {
+        return (conjugateRegions[value] & (1 << region)) != 0;
+    }
+
+    /**
+     * Get the peers of a cell, in the order of {@link Cell#getHouseCells()}.
+     * The returned array must not be modified.
+     * @param index the index of the cell
+     * @return the indexes of the 20 cells sharing a region with the cell
+     */
+    public static int[] getPeers(int index) {
+        return PEERS[index];
+    }
+
+    /**
+     * Test whether two distinct cells share a region
+     * @param index1 the index of the first cell
+     * @param index2 the index of the second cell
+     * @return whether the cells share a region. <tt>false</tt> if both indexes are equal.
+     */
+    public static boolean isPeer(int index1, int index2) {
+        return IS_PEER[index1][index2];
+    }
+
+    /**
+     * Get a cell of a region
+     * @param region the index of the region
+     * @param position the index of the cell within the region, as in {@link Grid.Region#getCell(int)}
+     * @return the index of the cell
+     */
+    public static int getCellIndex(int region, int position) {
+        return REGION_CELLS[region][position];
+    }
+
+    /**
+     * Get the cells a region shares with another region
+     * @param region the index of the region
+     * @param other the index of the other region
+     * @return the mask of the indexes, within <tt>region</tt>, of the cells that
+     * are also in <tt>other</tt>. <tt>0</tt> if both regions are equal or
+     * do not cross.
+     */
+    public static int getCommonPositions(int region, int other) {
+        return COMMON_POSITIONS[region][other];
+    }
+
+    /**
+     * Get the index of a region
+     * @param regionType the type of the region
+     * @param regionNum the number of the region within its type
+     * @return the index of the region
+     */
+    public static int getRegionIndex(Class<? extends Grid.Region> regionType, int regionNum) {
+        if (regionType == Grid.Block.class)
+            return regionNum;
+        else if (regionType == Grid.Row.class)
+            return 9 + regionNum;
+        else
+            return 18 + regionNum;
+    }
+
+}